@@ -0,0 +1,74 @@
+package me.arrayofc.keystrokes;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializes {@link KeystrokesConfig.Snapshot} objects, with the same keys as the configuration file.
+ * <p>
+ * Missing values are taken from the current configuration.
+ */
+public class ConfigSnapshotAdapter extends TypeAdapter<KeystrokesConfig.Snapshot> {
+
+    @Override
+    public void write(JsonWriter out, KeystrokesConfig.Snapshot snapshot) throws IOException {
+        out.beginObject();
+        out.name("show-movement").value(snapshot.isShowMovement());
+        out.name("show-mouse").value(snapshot.isShowMouse());
+        out.name("show-cps").value(snapshot.getShowCps().name());
+        out.name("show-spacebar").value(snapshot.isShowSpacebar());
+        out.name("key-display").value(snapshot.getKeyLookType().name());
+        out.name("sync-colors").value(snapshot.isSyncColors());
+        out.name("rainbow").value(snapshot.isRainbow());
+        out.name("text-shadow").value(snapshot.isTextShadow());
+        out.endObject();
+    }
+
+    @Override
+    public KeystrokesConfig.Snapshot read(JsonReader in) throws IOException {
+        final KeystrokesConfig.Snapshot current = KeystrokesConfig.snapshot();
+
+        boolean showMovement = current.isShowMovement(), showMouse = current.isShowMouse(), showSpacebar = current.isShowSpacebar();
+        boolean syncColors = current.isSyncColors(), rainbow = current.isRainbow(), textShadow = current.isTextShadow();
+        KeystrokesConfig.CpsType showCps = current.getShowCps();
+        KeystrokesConfig.MoveType keyLookType = current.getKeyLookType();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "show-movement":
+                    showMovement = in.nextBoolean();
+                    break;
+                case "show-mouse":
+                    showMouse = in.nextBoolean();
+                    break;
+                case "show-cps":
+                    showCps = KeystrokesConfig.CpsType.valueOf(in.nextString());
+                    break;
+                case "show-spacebar":
+                    showSpacebar = in.nextBoolean();
+                    break;
+                case "key-display":
+                    keyLookType = KeystrokesConfig.MoveType.valueOf(in.nextString());
+                    break;
+                case "sync-colors":
+                    syncColors = in.nextBoolean();
+                    break;
+                case "rainbow":
+                    rainbow = in.nextBoolean();
+                    break;
+                case "text-shadow":
+                    textShadow = in.nextBoolean();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return new KeystrokesConfig.Snapshot(showMovement, showMouse, showCps, showSpacebar, syncColors, rainbow, textShadow, keyLookType);
+    }
+}
@@ -2,31 +2,51 @@ package me.arrayofc.keystrokes;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.InstanceCreator;
 import me.arrayofc.keystrokes.color.ColorManager;
 import me.arrayofc.keystrokes.command.ModCommand;
 import me.arrayofc.keystrokes.gui.ColorOptionsConfigScreen;
 import me.arrayofc.keystrokes.gui.MainConfigScreen;
 import me.arrayofc.keystrokes.hud.HudManager;
+import me.arrayofc.keystrokes.hud.HudPosition;
+import me.arrayofc.keystrokes.hud.HudPositionAdapter;
 import me.arrayofc.keystrokes.hud.HudRenderer;
+import me.arrayofc.keystrokes.hud.LayoutProfile;
+import me.arrayofc.keystrokes.hud.OverlayHud;
+import me.arrayofc.keystrokes.hud.OverlayHudAdapter;
+import me.arrayofc.keystrokes.keystroke.KeyBindingRegistry;
+import me.arrayofc.keystrokes.keystroke.Keystroke;
+import me.arrayofc.keystrokes.keystroke.KeystrokeAdapter;
+import me.arrayofc.keystrokes.keystroke.LabelCache;
+import me.arrayofc.keystrokes.keystroke.RowAdapter;
+import me.arrayofc.keystrokes.util.InputSnapshot;
+import me.arrayofc.keystrokes.util.TextMetrics;
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.screen.ControlsScreen;
+import net.minecraft.client.gui.screen.OptionsScreen;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.toasts.SystemToast;
+import net.minecraft.client.settings.KeyBinding;
+import net.minecraft.resources.IReloadableResourceManager;
+import net.minecraft.util.text.StringTextComponent;
 import net.minecraftforge.client.event.ClientChatEvent;
+import net.minecraftforge.client.event.GuiOpenEvent;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.RegisterCommandsEvent;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.ExtensionPoint;
 import net.minecraftforge.fml.ModLoadingContext;
+import net.minecraftforge.fml.client.registry.ClientRegistry;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.config.ModConfig;
+import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLLoadCompleteEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
+import net.minecraftforge.resource.ISelectiveResourceReloadListener;
+import net.minecraftforge.resource.VanillaResourceType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.util.EnumMap;
+import org.lwjgl.glfw.GLFW;
 
 @Mod("keystrokesmod")
 public class Keystrokes {
@@ -39,17 +59,26 @@ public class Keystrokes {
 
     // A static GSON instance for overlay hud serialization
     public static final Gson GSON = new GsonBuilder().setPrettyPrinting()
-            // type adapter for EnumMap deserialization
-            .registerTypeAdapter(EnumMap.class, (InstanceCreator<EnumMap<?, ?>>) type -> {
-                Type[] types = (((ParameterizedType) type).getActualTypeArguments());
-                return new EnumMap((Class<?>) types[0]);
-            }).create();
+            // hand-written type adapters, so nothing is serialized by reflection
+            .registerTypeAdapter(OverlayHud.class, new OverlayHudAdapter().nullSafe())
+            .registerTypeAdapter(Keystroke.Row.class, new RowAdapter().nullSafe())
+            .registerTypeHierarchyAdapter(Keystroke.class, new KeystrokeAdapter().nullSafe())
+            .registerTypeAdapter(HudPosition.class, new HudPositionAdapter().nullSafe())
+            .registerTypeAdapter(KeystrokesConfig.Snapshot.class, new ConfigSnapshotAdapter().nullSafe())
+            .create();
 
     private final ColorManager colorManager;
+    private final KeyBindingRegistry keyBindingRegistry;
+    private final LabelCache labelCache;
+    private final TextMetrics textMetrics;
+    private final InputSnapshot inputSnapshot;
     private final HudManager hudManager;
     private final HudRenderer hudRenderer;
     private final MainConfigScreen mainConfigScreen;
 
+    // The keybinding switching to the next layout profile, null until the client has been set up
+    private KeyBinding nextProfileKey;
+
     private boolean menuOpen = false;
 
     public Keystrokes() {
@@ -61,7 +90,19 @@ public class Keystrokes {
         // Assign FML event listener for loading complete event
         FMLJavaModLoadingContext.get().getModEventBus().addListener(this::onLoadComplete);
 
+        // Assign FML event listener for client setup event
+        FMLJavaModLoadingContext.get().getModEventBus().addListener(this::onClientSetup);
+
+        // Assign FML event listeners for when the configuration is loaded or changed on disk
+        FMLJavaModLoadingContext.get().getModEventBus().addListener(this::onConfigLoad);
+        FMLJavaModLoadingContext.get().getModEventBus().addListener(this::onConfigReload);
+
         this.colorManager = new ColorManager(this);
+        this.keyBindingRegistry = new KeyBindingRegistry(this);
+        this.labelCache = new LabelCache();
+        this.textMetrics = new TextMetrics();
+        this.inputSnapshot = new InputSnapshot();
+        Keystroke.install(this.colorManager, this.keyBindingRegistry, this.inputSnapshot, this.labelCache, this.textMetrics);
         this.hudManager = new HudManager(this);
 
         this.mainConfigScreen = new MainConfigScreen(this);
@@ -74,29 +115,91 @@ public class Keystrokes {
         MinecraftForge.EVENT_BUS.register(this);
     }
 
+    /**
+     * Listener for the client setup, registers the keybindings of the mod.
+     */
+    public void onClientSetup(final FMLClientSetupEvent event) {
+        this.nextProfileKey = new KeyBinding("key.keystrokes.next-profile", GLFW.GLFW_KEY_UNKNOWN, "key.categories.keystrokes");
+        ClientRegistry.registerKeyBinding(this.nextProfileKey);
+
+        // the language is changed by reloading the resources, the cached labels might be in the old one
+        ((IReloadableResourceManager) Minecraft.getInstance().getResourceManager()).addReloadListener((ISelectiveResourceReloadListener) (resourceManager, predicate) -> {
+            if (predicate.test(VanillaResourceType.LANGUAGES)) this.labelCache.invalidate();
+
+            // the font might come from a resource pack, so the measured text widths are cleared on any reload
+            this.textMetrics.invalidate();
+            this.hudRenderer.invalidateOverlayCaches();
+        });
+    }
+
     /**
      * Listener for when the mod has finished loading.
      * <p>
-     * When fired, we initialize the color and keystroke hud with values from the configuration.
+     * When fired, we start loading the saved overlay HUDs in the background.
      */
     public void onLoadComplete(final FMLLoadCompleteEvent event) {
         this.hudManager.initialize();
         logger.info("Mod loading complete.");
     }
 
+    /**
+     * Listener for when the mod configuration has been loaded.
+     */
+    public void onConfigLoad(final ModConfig.Loading event) {
+        if (event.getConfig().getSpec() == KeystrokesConfig.CLIENT_CONFIG) KeystrokesConfig.refresh();
+    }
+
+    /**
+     * Listener for when the mod configuration file has been changed.
+     */
+    public void onConfigReload(final ModConfig.Reloading event) {
+        if (event.getConfig().getSpec() == KeystrokesConfig.CLIENT_CONFIG) KeystrokesConfig.reload();
+    }
+
     @SubscribeEvent
     public void onRenderTick(TickEvent.RenderTickEvent event) {
+        // sample the input & time once at the start of the frame, every overlay reads from these
+        if (event.phase == TickEvent.Phase.START) {
+            // swap in the saved overlays as soon as they've been loaded
+            this.hudManager.finishLoading(false);
+
+            this.inputSnapshot.capture();
+            this.colorManager.beginFrame();
+        }
+
         if (this.menuOpen) {
             Minecraft.getInstance().displayGuiScreen(this.mainConfigScreen);
             this.menuOpen = false;
             return;
         }
 
-        if (this.shouldShowOverlays()) {
+        // the overlays are drawn on top of the finished frame, so they're only rendered once per frame
+        if (event.phase == TickEvent.Phase.END && this.shouldShowOverlays()) {
             this.hudRenderer.renderScreenOverlays();
         }
     }
 
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || this.nextProfileKey == null) return;
+
+        while (this.nextProfileKey.isPressed()) {
+            final LayoutProfile profile = this.hudManager.cycleProfile();
+            SystemToast.addOrUpdate(Minecraft.getInstance().getToastGui(), SystemToast.Type.TUTORIAL_HINT,
+                    new StringTextComponent("Notice"), new StringTextComponent("Switched to profile " + profile.getName() + "."));
+        }
+    }
+
+    @SubscribeEvent
+    public void onGuiOpen(GuiOpenEvent event) {
+        final Screen current = Minecraft.getInstance().currentScreen;
+
+        // the controls might have been rebound when leaving the options, so the keybindings will have to be resolved again
+        if (current instanceof ControlsScreen || current instanceof OptionsScreen) {
+            this.keyBindingRegistry.invalidate();
+        }
+    }
+
     @SubscribeEvent
     public void onCommandsRegister(RegisterCommandsEvent event) {
         // Register the command to display the settings screen
@@ -108,11 +211,21 @@ public class Keystrokes {
         // adding client-sided only commands when the client is connected to multiplayer
         // is a struggle, so this is the work-around for command execution on multiplayer
         if (Minecraft.getInstance().getCurrentServerData() != null) {
-            if (event.getMessage().toLowerCase().startsWith("/keystrokes")) {
+            final String message = event.getMessage().toLowerCase();
+            if (message.startsWith("/keystrokes")) {
                 // cancel the event so nothing is actually sent
                 event.setCanceled(true);
-                // open the menu
-                this.menuOpen = true;
+
+                // run the sub command, or open the menu
+                if (message.startsWith("/keystrokes export")) {
+                    ModCommand.exportOverlays();
+                } else if (message.startsWith("/keystrokes import")) {
+                    ModCommand.importOverlays();
+                } else if (message.matches("/keystrokes profile \\S+.*")) {
+                    ModCommand.switchProfile(event.getMessage().split("\\s+")[2]);
+                } else {
+                    this.menuOpen = true;
+                }
 
                 // save command to sent messages so user can scroll up
                 Minecraft.getInstance().ingameGUI.getChatGUI().addToSentMessages(event.getMessage());
@@ -145,6 +258,34 @@ public class Keystrokes {
         return this.colorManager;
     }
 
+    /**
+     * Returns the registry resolving the keybindings of the keystrokes.
+     */
+    public KeyBindingRegistry getKeyBindingRegistry() {
+        return this.keyBindingRegistry;
+    }
+
+    /**
+     * Returns the cache of the labels displayed on the keystrokes.
+     */
+    public LabelCache getLabelCache() {
+        return this.labelCache;
+    }
+
+    /**
+     * Returns the cache of the measured text widths.
+     */
+    public TextMetrics getTextMetrics() {
+        return this.textMetrics;
+    }
+
+    /**
+     * Returns the snapshot of the input state for the current frame.
+     */
+    public InputSnapshot getInputSnapshot() {
+        return this.inputSnapshot;
+    }
+
     /**
      * Returns the class that handles rendering the different HUD overlays.
      *
@@ -3,6 +3,8 @@ package me.arrayofc.keystrokes;
 import com.electronwill.nightconfig.core.EnumGetMethod;
 import net.minecraftforge.common.ForgeConfigSpec;
 
+import java.util.Objects;
+
 /**
  * The {@link ForgeConfigSpec} provider (configuration) for this mod.
  */
@@ -22,12 +24,23 @@ public class KeystrokesConfig {
         ALWAYS, ON_CLICK, NEVER
     }
 
+    /**
+     * Represents the format the overlays are saved in.
+     */
+    public enum StorageFormat {
+        JSON, BINARY
+    }
+
     public static ForgeConfigSpec CLIENT_CONFIG;
 
+    // The snapshot of the configuration values read while rendering
+    private static volatile Snapshot snapshot;
+
     public static ForgeConfigSpec.ConfigValue<Boolean> SHOW_MOVEMENT;
     public static ForgeConfigSpec.ConfigValue<Boolean> SHOW_MOUSE;
     public static ForgeConfigSpec.EnumValue<CpsType> SHOW_CPS;
     public static ForgeConfigSpec.ConfigValue<Boolean> SHOW_SPACEBAR;
+    public static ForgeConfigSpec.EnumValue<StorageFormat> STORAGE_FORMAT;
 
     public static ForgeConfigSpec.ConfigValue<Boolean> SYNC_COLORS;
     public static ForgeConfigSpec.ConfigValue<Boolean> RAINBOW;
@@ -50,6 +63,10 @@ public class KeystrokesConfig {
         SHOW_SPACEBAR = builder.comment("Defines whether or not to show the space bar in the HUD.")
                 .define("show-spacebar", true);
 
+        STORAGE_FORMAT = builder.comment("The format to save the overlays in. BINARY is smaller and faster to load,",
+                "use \"/keystrokes export\" to get a readable JSON copy.")
+                .defineEnum("storage-format", StorageFormat.JSON, EnumGetMethod.ORDINAL_OR_NAME_IGNORECASE);
+
         builder.comment("Keystrokes Design").push("looks");
         HUD_KEY_LOOK_TYPE = builder.comment("Choose to display the HUD keys as arrows or key names.")
                 .defineEnum("key-display", MoveType.WASD, EnumGetMethod.ORDINAL_OR_NAME_IGNORECASE);
@@ -66,5 +83,156 @@ public class KeystrokesConfig {
         builder.pop();
 
         CLIENT_CONFIG = builder.build();
+
+        // holds the default values until the configuration has been loaded
+        snapshot = new Snapshot();
+    }
+
+    /**
+     * Returns the current snapshot of the configuration values.
+     */
+    public static Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Replaces the snapshot of the configuration values with the values of e.g. a layout profile.
+     * <p>
+     * Must be invoked on the client thread. The values aren't written to the configuration file
+     * until {@link #save()} is invoked, which is queued on the writer thread instead.
+     */
+    public static synchronized void use(Snapshot values) {
+        values.apply();
+        snapshot = values;
+    }
+
+    /**
+     * Writes the configuration values to the configuration file.
+     * <p>
+     * Synchronized with {@link #use(Snapshot)}, so a file is never written with a mix of two profiles.
+     */
+    public static synchronized void save() {
+        CLIENT_CONFIG.save();
+    }
+
+    /**
+     * Takes a new snapshot of the configuration values.
+     * <p>
+     * Invoked when the configuration is loaded, and when a value has been changed in the config screens.
+     */
+    public static synchronized void refresh() {
+        snapshot = new Snapshot();
+    }
+
+    /**
+     * Takes a new snapshot of the configuration values after the configuration file has been changed.
+     * <p>
+     * Saving the configuration ourselves reloads the file as well. Those reloads read the values of
+     * the current snapshot, so it's kept instead of being replaced by an equal one.
+     */
+    public static synchronized void reload() {
+        final Snapshot values = new Snapshot();
+        if (!values.equals(snapshot)) snapshot = values;
+    }
+
+    /**
+     * An immutable snapshot of the configuration values.
+     * <p>
+     * Reading the {@link ForgeConfigSpec.ConfigValue} objects goes through the underlying config every time,
+     * so the render path reads the values from this snapshot instead.
+     */
+    public static final class Snapshot {
+        private final boolean showMovement;
+        private final boolean showMouse;
+        private final CpsType showCps;
+        private final boolean showSpacebar;
+
+        private final boolean syncColors;
+        private final boolean rainbow;
+        private final boolean textShadow;
+        private final MoveType keyLookType;
+
+        private Snapshot() {
+            this(SHOW_MOVEMENT.get(), SHOW_MOUSE.get(), SHOW_CPS.get(), SHOW_SPACEBAR.get(),
+                    SYNC_COLORS.get(), RAINBOW.get(), TEXT_SHADOW.get(), HUD_KEY_LOOK_TYPE.get());
+        }
+
+        public Snapshot(boolean showMovement, boolean showMouse, CpsType showCps, boolean showSpacebar,
+                        boolean syncColors, boolean rainbow, boolean textShadow, MoveType keyLookType) {
+            this.showMovement = showMovement;
+            this.showMouse = showMouse;
+            this.showCps = showCps;
+            this.showSpacebar = showSpacebar;
+
+            this.syncColors = syncColors;
+            this.rainbow = rainbow;
+            this.textShadow = textShadow;
+            this.keyLookType = keyLookType;
+        }
+
+        /**
+         * Writes the values of this snapshot to the configuration.
+         */
+        public void apply() {
+            SHOW_MOVEMENT.set(this.showMovement);
+            SHOW_MOUSE.set(this.showMouse);
+            SHOW_CPS.set(this.showCps);
+            SHOW_SPACEBAR.set(this.showSpacebar);
+
+            SYNC_COLORS.set(this.syncColors);
+            RAINBOW.set(this.rainbow);
+            TEXT_SHADOW.set(this.textShadow);
+            HUD_KEY_LOOK_TYPE.set(this.keyLookType);
+        }
+
+        public boolean isShowMovement() {
+            return this.showMovement;
+        }
+
+        public boolean isShowMouse() {
+            return this.showMouse;
+        }
+
+        public CpsType getShowCps() {
+            return this.showCps;
+        }
+
+        public boolean isShowSpacebar() {
+            return this.showSpacebar;
+        }
+
+        public boolean isSyncColors() {
+            return this.syncColors;
+        }
+
+        public boolean isRainbow() {
+            return this.rainbow;
+        }
+
+        public boolean isTextShadow() {
+            return this.textShadow;
+        }
+
+        public MoveType getKeyLookType() {
+            return this.keyLookType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final Snapshot snapshot = (Snapshot) o;
+            return this.showMovement == snapshot.showMovement && this.showMouse == snapshot.showMouse
+                    && this.showCps == snapshot.showCps && this.showSpacebar == snapshot.showSpacebar
+                    && this.syncColors == snapshot.syncColors && this.rainbow == snapshot.rainbow
+                    && this.textShadow == snapshot.textShadow && this.keyLookType == snapshot.keyLookType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.showMovement, this.showMouse, this.showCps, this.showSpacebar,
+                    this.syncColors, this.rainbow, this.textShadow, this.keyLookType);
+        }
     }
 }
@@ -5,20 +5,42 @@ import me.arrayofc.keystrokes.Keystrokes;
 import me.arrayofc.keystrokes.KeystrokesConfig;
 import me.arrayofc.keystrokes.gui.MainConfigScreen;
 import me.arrayofc.keystrokes.hud.OverlayHud;
+import me.arrayofc.keystrokes.keystroke.Keystroke;
 
 import java.awt.*;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 /**
  * This class handles the colors in this mod.
  */
 public class ColorManager {
 
-    // The instance of the main class
-    private final Keystrokes keystrokes;
+    // The background color of a pressed keystroke
+    private static final int PRESSED_BACKGROUND = Color.LIGHT_GRAY.getRGB();
+
+    // The default overlay of the active profile, which the custom overlays take their colors from when synced
+    private final Supplier<OverlayHud> defaultOverlay;
+
+    // Whether or not the user currently has the color settings menu open
+    private final BooleanSupplier changingColors;
+
+    // The tab selected in the last opened color settings menu, null if it was never opened
+    private final Supplier<ColorTab> selectedTab;
+
+    // The engine generating the rainbow colors
+    private final RainbowEngine rainbowEngine = new RainbowEngine();
 
     public ColorManager(Keystrokes keystrokes) {
-        this.keystrokes = keystrokes;
+        this(() -> keystrokes.getHudManager().getDefaultOverlay(), keystrokes::isChangingColors,
+                () -> MainConfigScreen.currentColorOptionsScreen == null ? null : MainConfigScreen.currentColorOptionsScreen.currentTab);
+    }
+
+    public ColorManager(Supplier<OverlayHud> defaultOverlay, BooleanSupplier changingColors, Supplier<ColorTab> selectedTab) {
+        this.defaultOverlay = defaultOverlay;
+        this.changingColors = changingColors;
+        this.selectedTab = selectedTab;
     }
 
     /**
@@ -36,6 +58,7 @@ public class ColorManager {
         hud.getRgbValues().get(colorTab)[0] = values.get(0);
         hud.getRgbValues().get(colorTab)[1] = values.get(1);
         hud.getRgbValues().get(colorTab)[2] = values.get(2);
+        hud.invalidateColors();
     }
 
     /**
@@ -52,6 +75,7 @@ public class ColorManager {
         }
 
         hud.getRgbValues().get(colorTab)[type] = value;
+        hud.invalidateColors();
     }
 
     /**
@@ -60,7 +84,23 @@ public class ColorManager {
      * @return The created color.
      */
     public Color createColor(OverlayHud hud, ColorTab colorTab) {
-        return new Color(hud.getRgbValues().get(colorTab)[0], hud.getRgbValues().get(colorTab)[1], hud.getRgbValues().get(colorTab)[2]);
+        return new Color(this.getColor(hud, colorTab));
+    }
+
+    /**
+     * Returns the color of a tab packed as an ARGB value.
+     * <p>
+     * The value is cached in the overlay hud until the colors are changed with {@link #set}.
+     */
+    public int getColor(OverlayHud hud, ColorTab colorTab) {
+        return hud.getPackedColor(colorTab);
+    }
+
+    /**
+     * Returns the overlay hud to take the colors from, which is the default overlay if colors are synced.
+     */
+    private OverlayHud resolve(OverlayHud hud) {
+        return hud.isCustom() && KeystrokesConfig.snapshot().isSyncColors() ? this.defaultOverlay.get() : hud;
     }
 
     /**
@@ -80,69 +120,93 @@ public class ColorManager {
 
     /**
      * Returns the text color.
+     *
+     * @param offset The horizontal position in the overlay for the rainbow effect, in {@link RainbowEngine#KEY_UNIT key units}.
      */
     public int getHudTextColor(OverlayHud hud, double offset) {
-        boolean syncColors = hud.isCustom() && KeystrokesConfig.SYNC_COLORS.get();
+        final OverlayHud colorHud = this.resolve(hud);
 
         // Check if the user is trying out colors right now, if so, put the temporary colors
-        if (this.keystrokes.isChangingColors()) {
+        if (this.changingColors.getAsBoolean()) {
+            final ColorTab selectedTab = this.selectedTab.get();
+
             // if they are previewing the click color we'll need to display that on the HUD
-            if (MainConfigScreen.currentColorOptionsScreen.currentTab == ColorTab.CLICK) {
-                return this.createColor(syncColors ? this.keystrokes.getHudManager().getDefaultOverlay() : hud, ColorTab.CLICK).getRGB();
+            if (selectedTab == ColorTab.CLICK) {
+                return this.getColor(colorHud, ColorTab.CLICK);
 
                 // if current tab is HUD & rainbow mode is on, we still show the rainbow color
-            } else if (MainConfigScreen.currentColorOptionsScreen.currentTab == ColorTab.HUD && KeystrokesConfig.RAINBOW.get()) {
+            } else if (selectedTab == ColorTab.HUD && KeystrokesConfig.snapshot().isRainbow()) {
                 return this.getRainbowColor(offset);
             }
 
-            return this.createColor(syncColors ? this.keystrokes.getHudManager().getDefaultOverlay() : hud, ColorTab.TEXT).getRGB();
+            return this.getColor(colorHud, ColorTab.TEXT);
 
         } else {
             // if user isn't trying out colors
-            if (KeystrokesConfig.RAINBOW.get()) {
+            if (KeystrokesConfig.snapshot().isRainbow()) {
                 // return the rainbow color offset if rainbow mode is on
                 return this.getRainbowColor(offset);
 
             } else {
                 // else we'll just return the selected rgb color
-                return this.createColor(syncColors ? this.keystrokes.getHudManager().getDefaultOverlay() : hud, ColorTab.TEXT).getRGB();
+                return this.getColor(colorHud, ColorTab.TEXT);
             }
         }
     }
 
+    /**
+     * Returns the color to display for the text of a keystroke, depending on
+     * whether or not it was pressed in the input snapshot of the current frame.
+     */
+    public int getHudKeyColor(OverlayHud hud, Keystroke keystroke, double offset) {
+        return keystroke.isPressed() ? this.getHudClickColor(hud, offset) : this.getHudTextColor(hud, offset);
+    }
+
     /**
      * Returns the color to display for when a button is pressed.
      */
     public int getHudClickColor(OverlayHud hud, double offset) {
-        if (hud.isCustom() && KeystrokesConfig.SYNC_COLORS.get()) {
-            return this.getHudClickColor(this.keystrokes.getHudManager().getDefaultOverlay(), offset);
-        }
-
-        if (KeystrokesConfig.RAINBOW.get()) {
+        if (KeystrokesConfig.snapshot().isRainbow()) {
             return this.getRainbowColor(offset);
         } else {
-            return this.createColor(hud, ColorTab.CLICK).getRGB();
+            return this.getColor(this.resolve(hud), ColorTab.CLICK);
         }
     }
 
+    /**
+     * Returns the color to display behind the text of a keystroke, which is highlighted while
+     * it's pressed or while the click color has been picked in the color settings.
+     *
+     * @param pressed Whether or not the keystroke is pressed in the input snapshot of the current frame.
+     */
+    public int getHudKeyBackgroundColor(OverlayHud hud, boolean pressed) {
+        if (pressed || this.selectedTab.get() == ColorTab.CLICK) return PRESSED_BACKGROUND;
+        return this.getHudBackgroundColor(hud);
+    }
+
     /**
      * Returns the color to display for when a button is pressed.
      */
     public int getHudBackgroundColor(OverlayHud hud) {
-        if (hud.isCustom() && KeystrokesConfig.SYNC_COLORS.get()) {
-            return this.createColor(this.keystrokes.getHudManager().getDefaultOverlay(), ColorTab.HUD).getRGB();
-        }
+        return this.getColor(this.resolve(hud), ColorTab.HUD);
+    }
 
-        return this.createColor(hud, ColorTab.HUD).getRGB();
+    /**
+     * Prepares the colors for a new frame.
+     * <p>
+     * Invoked at the start of every frame.
+     */
+    public void beginFrame() {
+        this.rainbowEngine.beginFrame();
     }
 
     /**
-     * Creates a RGB from a generated hue creating a waving rainbow effect.
+     * Returns the color of the waving rainbow effect at a position.
+     *
+     * @param offset The horizontal position in the overlay, in {@link RainbowEngine#KEY_UNIT key units}.
      */
     public int getRainbowColor(double offset) {
-        float hue = (float) (System.currentTimeMillis() % 1000 / 1000.0);
-        hue += (this.keystrokes.getHudRenderer().rainbowXOffset + offset / this.keystrokes.getHudManager().getOverlayHuds().get(0).getHudPosition().getWidth()) * 0.4;
-        return Color.HSBtoRGB(hue, 1.0f, 1.0f);
+        return this.rainbowEngine.getColor(offset);
     }
 
     /**
@@ -152,8 +216,7 @@ public class ColorManager {
      * @param alpha The alpha value.
      */
     public static void glColor(int color, float alpha) {
-        // if no valid alpha value is given, we'll generate it
-        if (alpha <= -1f || alpha > 1f) alpha = (color >> 24 & 0xFF) / 255.0f;
+        alpha = getAlpha(color, alpha);
 
         float red = (color >> 16 & 0xFF) / 255.0f;
         float green = (color >> 8 & 0xFF) / 255.0f;
@@ -161,4 +224,16 @@ public class ColorManager {
 
         RenderSystem.color4f(red, green, blue, alpha);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the alpha value to draw a color with.
+     *
+     * @param color Color ARGB value.
+     * @param alpha The alpha value, if not valid it's taken from the color.
+     * @return The alpha value, between 0 and 1.
+     */
+    public static float getAlpha(int color, float alpha) {
+        // if no valid alpha value is given, we'll generate it
+        return alpha <= -1f || alpha > 1f ? (color >> 24 & 0xFF) / 255.0f : alpha;
+    }
+}
@@ -0,0 +1,53 @@
+package me.arrayofc.keystrokes.color;
+
+import java.awt.*;
+
+/**
+ * Generates the colors of the waving rainbow effect.
+ * <p>
+ * The time is sampled once per frame, and the colors are looked up from a precomputed table of hues,
+ * so a rainbow color costs about the same as a static one.
+ */
+public class RainbowEngine {
+
+    // The width of a default key including the gap to the next key, positions on the rainbow are measured in these units
+    public static final double KEY_UNIT = 26.5;
+
+    // How far the hue shifts for every key unit
+    private static final double SPREAD = 0.4;
+
+    // The amount of hues in the lookup table, must be a power of two
+    private static final int TABLE_SIZE = 1024;
+
+    // The RGB values of all the hues with full saturation and brightness
+    private static final int[] HUE_TABLE = new int[TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            HUE_TABLE[i] = Color.HSBtoRGB(i / (float) TABLE_SIZE, 1.0f, 1.0f);
+        }
+    }
+
+    // The hue at the start of the rainbow for the current frame
+    private double phase;
+
+    /**
+     * Samples the time for the current frame.
+     * <p>
+     * Invoked at the start of every frame.
+     */
+    public void beginFrame() {
+        this.phase = System.currentTimeMillis() % 1000 / 1000.0;
+    }
+
+    /**
+     * Returns the rainbow color at a position.
+     *
+     * @param position The horizontal position in the overlay, in key units.
+     * @return The RGB value of the color.
+     */
+    public int getColor(double position) {
+        final double hue = this.phase + position * SPREAD;
+        return HUE_TABLE[(int) Math.floor(hue * TABLE_SIZE) & (TABLE_SIZE - 1)];
+    }
+}
@@ -1,23 +1,38 @@
 package me.arrayofc.keystrokes.command;
 
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
 import me.arrayofc.keystrokes.Keystrokes;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.toasts.SystemToast;
 import net.minecraft.command.CommandSource;
 import net.minecraft.command.Commands;
+import net.minecraft.util.text.StringTextComponent;
 import net.minecraftforge.event.RegisterCommandsEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
 
 /**
  * Mod command class.
  * <p>
- * Opens the mod configuration.
+ * Opens the mod configuration, exports or imports the overlays and switches layout profiles.
  */
 public class ModCommand {
 
+    // The logger for this class
+    private static final Logger logger = LogManager.getLogger();
+
     /**
      * Method invoked when {@link RegisterCommandsEvent} is fired to register the command for the mod.
      */
     public static void register(CommandDispatcher<CommandSource> dispatcher) {
-        dispatcher.register(Commands.literal("keystrokes").executes(context -> openMenu()));
+        dispatcher.register(Commands.literal("keystrokes").executes(context -> openMenu())
+                .then(Commands.literal("export").executes(context -> exportOverlays()))
+                .then(Commands.literal("import").executes(context -> importOverlays()))
+                .then(Commands.literal("profile").then(Commands.argument("name", StringArgumentType.word())
+                        .executes(context -> switchProfile(StringArgumentType.getString(context, "name"))))));
     }
 
     /**
@@ -27,4 +42,46 @@ public class ModCommand {
         Keystrokes.getInstance().setMenuOpen(true);
         return 0;
     }
+
+    /**
+     * Invoked by the command to export the overlays to a readable JSON file.
+     */
+    public static int exportOverlays() {
+        // commands may be executed on the integrated server thread, the overlays belong to the client thread
+        Minecraft.getInstance().execute(() -> Keystrokes.getInstance().getHudManager().exportOverlays(
+                file -> showNotice("Exported overlays to " + file.getFileName() + ".")));
+        return 0;
+    }
+
+    /**
+     * Invoked by the command to replace the overlays with the ones in the exported JSON file.
+     */
+    public static int importOverlays() {
+        Minecraft.getInstance().execute(() -> {
+            try {
+                Keystrokes.getInstance().getHudManager().importOverlays();
+                showNotice("Imported overlays.");
+            } catch (IOException e) {
+                logger.error("Couldn't import the overlays", e);
+                showNotice("Couldn't import overlays.");
+            }
+        });
+        return 0;
+    }
+
+    /**
+     * Invoked by the command to switch to another layout profile, which is created if it doesn't exist.
+     */
+    public static int switchProfile(String name) {
+        Minecraft.getInstance().execute(() -> {
+            Keystrokes.getInstance().getHudManager().switchProfile(name);
+            showNotice("Switched to profile " + name + ".");
+        });
+        return 0;
+    }
+
+    private static void showNotice(String message) {
+        SystemToast.addOrUpdate(Minecraft.getInstance().getToastGui(), SystemToast.Type.TUTORIAL_HINT,
+                new StringTextComponent("Notice"), new StringTextComponent(message));
+    }
 }
\ No newline at end of file
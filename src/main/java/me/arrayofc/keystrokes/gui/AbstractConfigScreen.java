@@ -3,6 +3,7 @@ package me.arrayofc.keystrokes.gui;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.mojang.blaze3d.matrix.MatrixStack;
+import me.arrayofc.keystrokes.KeystrokesConfig;
 import me.arrayofc.keystrokes.util.Strings;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.screen.Screen;
@@ -42,6 +43,8 @@ public abstract class AbstractConfigScreen extends Screen {
      */
     protected <T> void updateButton(ITextComponent translation, ForgeConfigSpec.ConfigValue<T> value) {
         this.settingButtons.get(value).setMessage(this.appendSuffix(translation, value));
+        // the value has been altered, so the overlays need to read the new one
+        KeystrokesConfig.refresh();
     }
 
     /**
@@ -127,7 +127,7 @@ public class ColorOptionsConfigScreen extends Screen {
 
         super.addButton(new Button(super.width / 2 - 75, super.height - 28, 150, 20, DialogTexts.GUI_DONE, (press) -> {
             Minecraft.getInstance().displayGuiScreen(this.lastScreen);
-            this.keystrokes.getHudManager().saveOverlay(this.overlay);
+            this.keystrokes.getHudManager().saveOverlays();
         }));
     }
 
@@ -210,12 +210,12 @@ public class ColorOptionsConfigScreen extends Screen {
         drawCenteredString(matrixStack, this.font, this.title, this.width / 2, 20, 16777215);
 
         // Show info text if Rainbow mode is on and user is changing text color
-        if (KeystrokesConfig.RAINBOW.get() && (this.currentTab == ColorTab.TEXT || this.currentTab == ColorTab.CLICK)) {
+        if (KeystrokesConfig.snapshot().isRainbow() && (this.currentTab == ColorTab.TEXT || this.currentTab == ColorTab.CLICK)) {
             drawCenteredString(matrixStack, this.font, (this.currentTab == ColorTab.TEXT ? Translations.COLOR_SCREEN_TEXT_LABEL : Translations.COLOR_SCREEN_CLICK_LABEL).copyRaw().appendString(" ")
                     .append(Translations.COLOR_SCREEN_NOT_SHOW_TITLE), this.width / 2, 260, 16777215);
 
             // if color sync is enabled, and they're changing colors for a custom overlay, inform that the color wont be shown
-        } else if (KeystrokesConfig.SYNC_COLORS.get() && this.overlay.isCustom()) {
+        } else if (KeystrokesConfig.snapshot().isSyncColors() && this.overlay.isCustom()) {
             drawCenteredString(matrixStack, this.font, Translations.COLOR_SCREEN_SYNC_ENABLED_TITLE, this.width / 2, 260, 16777215);
         }
 
@@ -228,7 +228,7 @@ public class ColorOptionsConfigScreen extends Screen {
      */
     private void renderColorPreview(MatrixStack matrixStack) {
         fill(matrixStack, this.offsetX + 9, this.offsetY + 18, this.offsetX + 9 + 234, this.offsetY + 18 + 113,
-                this.keystrokes.getColorManager().createColor(this.overlay, this.currentTab).getRGB());
+                this.keystrokes.getColorManager().getColor(this.overlay, this.currentTab));
     }
 
     /**
@@ -290,6 +290,6 @@ public class ColorOptionsConfigScreen extends Screen {
     public void onClose() {
         Minecraft.getInstance().keyboardListener.enableRepeatEvents(false);
         this.currentTab = ColorTab.TEXT;
-        this.keystrokes.getHudManager().saveOverlay(this.overlay);
+        this.keystrokes.getHudManager().saveOverlays();
     }
 }
\ No newline at end of file
@@ -96,5 +96,6 @@ public class HudOptionsConfigScreen extends AbstractConfigScreen {
     @Override
     public void onClose() {
         KeystrokesConfig.CLIENT_CONFIG.save();
+        KeystrokesConfig.refresh();
     }
 }
\ No newline at end of file
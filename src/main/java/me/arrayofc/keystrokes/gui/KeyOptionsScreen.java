@@ -1,9 +1,7 @@
 package me.arrayofc.keystrokes.gui;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.mojang.blaze3d.matrix.MatrixStack;
-import com.mojang.datafixers.util.Pair;
 import me.arrayofc.keystrokes.Keystrokes;
 import me.arrayofc.keystrokes.color.ColorTab;
 import me.arrayofc.keystrokes.hud.OverlayHud;
@@ -11,33 +9,33 @@ import me.arrayofc.keystrokes.util.Strings;
 import me.arrayofc.keystrokes.util.Translations;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.DialogTexts;
+import net.minecraft.client.gui.IGuiEventListener;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.button.Button;
+import net.minecraft.client.gui.widget.list.AbstractOptionList;
 import net.minecraft.client.settings.KeyBinding;
 import net.minecraft.client.util.InputMappings;
 import net.minecraft.util.text.Color;
+import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.StringTextComponent;
 import net.minecraft.util.text.Style;
 import net.minecraft.util.text.TextFormatting;
 
 import javax.annotation.Nonnull;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
  * The config screen for managing the custom HUD overlays.
+ * <p>
+ * The overlays are listed in a scrollable list, which only creates and renders the rows in view.
  */
 public class KeyOptionsScreen extends Screen {
 
     private final Keystrokes keystrokes;
     private final Screen lastScreen;
 
-    // The current Y offset
-    private int yOffset;
-
-    // The overlays with their Y position and corresponding button.
-    private final Map<OverlayHud, Pair<Integer, List<Button>>> overlays = Maps.newHashMap();
+    // The list of overlays with their options
+    private OverlayList overlayList;
 
     public KeyOptionsScreen(Keystrokes keystrokes, Screen lastScreenIn) {
         super(Translations.KEY_SCREEN_TITLE);
@@ -48,89 +46,139 @@ public class KeyOptionsScreen extends Screen {
 
     @Override
     protected void init() {
-        super.addButton(new Button(super.width / 2 - 75, super.height - 28, 150, 20, DialogTexts.GUI_DONE, press -> Minecraft.getInstance().displayGuiScreen(this.lastScreen)));
+        // add a row for every overlay with a delete button
+        this.overlayList = new OverlayList(this.keystrokes.getHudManager().getOverlayHuds());
+        this.children.add(this.overlayList);
 
-        this.yOffset = 60;
+        super.addButton(new Button(super.width / 2 - 75, super.height - 52, 150, 20, Translations.KEY_SCREEN_NEW_BINDING_LABEL, press -> Minecraft.getInstance().displayGuiScreen(new KeyInputScreen(this.keystrokes, this)), (p_onTooltip_1_, p_onTooltip_2_, p_onTooltip_3_, p_onTooltip_4_) -> {
+            if (p_onTooltip_1_.active) {
+                this.renderTooltip(p_onTooltip_2_, Minecraft.getInstance().fontRenderer.trimStringToWidth(Translations.KEY_SCREEN_NEW_BINDING_TOOLTIP, Math.max(this.width / 2 - 43, 170)), p_onTooltip_3_, p_onTooltip_4_);
+            }
+        }));
 
-        // add a row for every overlay with a delete button
-        for (OverlayHud overlayHud : this.keystrokes.getHudManager().getOverlayHuds()) {
-            this.initOptionsRow(overlayHud, yOffset);
-            this.yOffset += 40;
-        }
+        super.addButton(new Button(super.width / 2 - 75, super.height - 28, 150, 20, DialogTexts.GUI_DONE, press -> Minecraft.getInstance().displayGuiScreen(this.lastScreen)));
+    }
 
-        // add the "new binding" button if there's less than 5 overlays registered
-        if (this.keystrokes.getHudManager().getOverlayHuds().size() < 5) {
-            this.yOffset += 30;
+    @Override
+    public void render(@Nonnull MatrixStack matrixStack, int mouseX, int mouseY, float partialTicks) {
+        super.renderBackground(matrixStack);
+        this.overlayList.render(matrixStack, mouseX, mouseY, partialTicks);
+        this.keystrokes.getHudRenderer().renderScreenOverlays();
 
-            super.addButton(new Button(super.width / 2 - 80, this.yOffset, 150, 20, Translations.KEY_SCREEN_NEW_BINDING_LABEL, press -> Minecraft.getInstance().displayGuiScreen(new KeyInputScreen(this.keystrokes, this)), (p_onTooltip_1_, p_onTooltip_2_, p_onTooltip_3_, p_onTooltip_4_) -> {
-                if (p_onTooltip_1_.active) {
-                    this.renderTooltip(p_onTooltip_2_, Minecraft.getInstance().fontRenderer.trimStringToWidth(Translations.KEY_SCREEN_NEW_BINDING_TOOLTIP, Math.max(this.width / 2 - 43, 170)), p_onTooltip_3_, p_onTooltip_4_);
-                }
-            }));
-        }
+        drawCenteredString(matrixStack, this.font, this.title, this.width / 2, 20, 16777215);
+
+        super.render(matrixStack, mouseX, mouseY, partialTicks);
     }
 
     /**
-     * Adds a new row to display overlay hud options on.
-     *
-     * @param hud       The HUD for this row.
-     * @param yOffset   The Y position where this row can be placed on.
+     * The scrollable list of overlays, with a row of options for every overlay.
      */
-    public void initOptionsRow(OverlayHud hud, int yOffset) {
-        List<Button> buttons = Lists.newArrayList();
-        buttons.add(super.addButton(new Button(super.width / 2 + 90, yOffset, 70, 20, Translations.KEY_SCREEN_DELETE_OVERLAY_LABEL.copyRaw().setStyle(Style.EMPTY.setColor(Color.fromTextFormatting(TextFormatting.RED))), press -> {
-            if (hud.getName().equalsIgnoreCase("default")) return;
-            this.deleteOverlay(hud);
-        }, (p_onTooltip_1_, p_onTooltip_2_, p_onTooltip_3_, p_onTooltip_4_) -> {
-            if (p_onTooltip_1_.active) {
-                this.renderTooltip(p_onTooltip_2_, Minecraft.getInstance().fontRenderer.trimStringToWidth(Translations.KEY_SCREEN_DELETE_OVERLAY_TOOLTIP, Math.max(this.width / 2 - 43, 170)), p_onTooltip_3_, p_onTooltip_4_);
-            }
-        })));
+    public class OverlayList extends AbstractOptionList<OverlayList.OverlayEntry> {
 
-        buttons.add(super.addButton(new Button(super.width / 2, yOffset, 70, 20, Translations.KEY_SCREEN_COLOR_OVERLAY_LABEL, press -> {
-            MainConfigScreen.currentColorOptionsScreen = new ColorOptionsConfigScreen(this.keystrokes, this, ColorTab.TEXT, hud);
-            Minecraft.getInstance().displayGuiScreen(MainConfigScreen.currentColorOptionsScreen);
+        public OverlayList(List<OverlayHud> overlayHuds) {
+            super(Minecraft.getInstance(), KeyOptionsScreen.this.width, KeyOptionsScreen.this.height, 40, KeyOptionsScreen.this.height - 60, 24);
 
-        }, (p_onTooltip_1_, p_onTooltip_2_, p_onTooltip_3_, p_onTooltip_4_) -> {
-            if (p_onTooltip_1_.active) {
-                this.renderTooltip(p_onTooltip_2_, Minecraft.getInstance().fontRenderer.trimStringToWidth(Translations.KEY_SCREEN_COLOR_OVERLAY_TOOLTIP, Math.max(this.width / 2 - 43, 170)), p_onTooltip_3_, p_onTooltip_4_);
+            for (OverlayHud overlayHud : overlayHuds) {
+                this.addEntry(new OverlayEntry(overlayHud));
             }
-        })));
+        }
 
-        this.overlays.put(hud, Pair.of(yOffset, buttons));
+        /**
+         * Removes the row of an overlay, keeping the scroll position within the shorter list.
+         */
+        private void removeOverlay(OverlayEntry entry) {
+            this.removeEntry(entry);
+            this.setScrollAmount(this.getScrollAmount());
+        }
 
-        // we don't want users to be able to delete the default one
-        if (hud.getName().equalsIgnoreCase("default")) {
-            this.overlays.get(hud).getSecond().get(0).active = false;
+        @Override
+        public int getRowWidth() {
+            return 340;
         }
-    }
 
-    /**
-     * Invoked from the "Delete" button.
-     * <p>
-     * Deletes the specified overlay from the mod.
-     */
-    private void deleteOverlay(OverlayHud overlayHud) {
-        this.overlays.remove(overlayHud).getSecond().forEach(this.buttons::remove);
-        this.keystrokes.getHudManager().deleteOverlay(overlayHud);
-        Minecraft.getInstance().displayGuiScreen(new KeyOptionsScreen(this.keystrokes, this.lastScreen));
-    }
+        @Override
+        protected int getScrollbarPosition() {
+            return this.width / 2 + 175;
+        }
 
-    @Override
-    public void render(@Nonnull MatrixStack matrixStack, int mouseX, int mouseY, float partialTicks) {
-        super.renderBackground(matrixStack);
-        this.keystrokes.getHudRenderer().renderScreenOverlays();
+        /**
+         * The row of an overlay, its buttons are only created once the row is scrolled into view.
+         */
+        public class OverlayEntry extends AbstractOptionList.Entry<OverlayEntry> {
 
-        drawCenteredString(matrixStack, this.font, this.title, this.width / 2, 20, 16777215);
+            private final OverlayHud hud;
 
-        // Draw the overlay names
-        this.overlays.forEach((overlayHud, y) -> drawCenteredString(matrixStack, this.font, new StringTextComponent(Strings.makeSentence(overlayHud.getName())), this.width / 2 - 100, y.getFirst(), 16777215));
+            // The name of the overlay, as it's displayed
+            private final ITextComponent name;
 
-        if (this.keystrokes.getHudManager().getOverlayHuds().size() == 5) {
-            drawCenteredString(matrixStack, this.font, Translations.KEY_SCREEN_MAX, this.width / 2, this.yOffset + 20, 16777215);
-        }
+            // The delete and color buttons, empty until the row has been rendered
+            private final List<Button> buttons = Lists.newArrayListWithCapacity(2);
 
-        super.render(matrixStack, mouseX, mouseY, partialTicks);
+            private OverlayEntry(OverlayHud hud) {
+                this.hud = hud;
+                this.name = new StringTextComponent(Strings.makeSentence(hud.getName()));
+            }
+
+            private void initButtons() {
+                this.buttons.add(new Button(0, 0, 70, 20, Translations.KEY_SCREEN_DELETE_OVERLAY_LABEL.copyRaw().setStyle(Style.EMPTY.setColor(Color.fromTextFormatting(TextFormatting.RED))), press -> {
+                    if (this.hud.getName().equalsIgnoreCase("default")) return;
+                    this.deleteOverlay();
+                }, (p_onTooltip_1_, p_onTooltip_2_, p_onTooltip_3_, p_onTooltip_4_) -> {
+                    if (p_onTooltip_1_.active) {
+                        KeyOptionsScreen.this.renderTooltip(p_onTooltip_2_, Minecraft.getInstance().fontRenderer.trimStringToWidth(Translations.KEY_SCREEN_DELETE_OVERLAY_TOOLTIP, Math.max(KeyOptionsScreen.this.width / 2 - 43, 170)), p_onTooltip_3_, p_onTooltip_4_);
+                    }
+                }));
+
+                this.buttons.add(new Button(0, 0, 70, 20, Translations.KEY_SCREEN_COLOR_OVERLAY_LABEL, press -> {
+                    MainConfigScreen.currentColorOptionsScreen = new ColorOptionsConfigScreen(KeyOptionsScreen.this.keystrokes, KeyOptionsScreen.this, ColorTab.TEXT, this.hud);
+                    Minecraft.getInstance().displayGuiScreen(MainConfigScreen.currentColorOptionsScreen);
+
+                }, (p_onTooltip_1_, p_onTooltip_2_, p_onTooltip_3_, p_onTooltip_4_) -> {
+                    if (p_onTooltip_1_.active) {
+                        KeyOptionsScreen.this.renderTooltip(p_onTooltip_2_, Minecraft.getInstance().fontRenderer.trimStringToWidth(Translations.KEY_SCREEN_COLOR_OVERLAY_TOOLTIP, Math.max(KeyOptionsScreen.this.width / 2 - 43, 170)), p_onTooltip_3_, p_onTooltip_4_);
+                    }
+                }));
+
+                // we don't want users to be able to delete the default one
+                if (this.hud.getName().equalsIgnoreCase("default")) {
+                    this.buttons.get(0).active = false;
+                }
+            }
+
+            /**
+             * Invoked from the "Delete" button.
+             * <p>
+             * Deletes the overlay from the mod, and its row from the list.
+             */
+            private void deleteOverlay() {
+                KeyOptionsScreen.this.keystrokes.getHudManager().deleteOverlay(this.hud);
+                OverlayList.this.removeOverlay(this);
+            }
+
+            @Override
+            public void render(@Nonnull MatrixStack matrixStack, int index, int top, int left, int width, int height, int mouseX, int mouseY, boolean isMouseOver, float partialTicks) {
+                // only the rows in view are rendered, so this is where the buttons are created
+                if (this.buttons.isEmpty()) this.initButtons();
+
+                final int center = KeyOptionsScreen.this.width / 2;
+
+                // Draw the overlay name
+                drawCenteredString(matrixStack, KeyOptionsScreen.this.font, this.name, center - 100, top + 6, 16777215);
+
+                this.buttons.get(1).x = center;
+                this.buttons.get(0).x = center + 90;
+                for (Button button : this.buttons) {
+                    button.y = top;
+                    button.render(matrixStack, mouseX, mouseY, partialTicks);
+                }
+            }
+
+            @Override
+            @Nonnull
+            public List<? extends IGuiEventListener> getEventListeners() {
+                return this.buttons;
+            }
+        }
     }
 
     /**
@@ -180,9 +228,7 @@ public class KeyOptionsScreen extends Screen {
         public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
             final InputMappings.Input input = InputMappings.getInputByCode(keyCode, scanCode);
 
-            final KeyBinding keyBinding = Arrays.stream(Minecraft.getInstance().gameSettings.keyBindings)
-                    .filter(keyBinding1 -> keyBinding1.getKey().getTranslationKey().equals(input.getTranslationKey()))
-                    .findFirst().orElse(null);
+            final KeyBinding keyBinding = this.keystrokes.getKeyBindingRegistry().getBoundTo(input);
 
             if (keyBinding != null) {
                 // see if this keybind is used in a hud overlay already or not
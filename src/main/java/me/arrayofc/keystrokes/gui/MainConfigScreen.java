@@ -40,6 +40,7 @@ public class MainConfigScreen extends AbstractConfigScreen {
         // the "Done" button
         this.addButton(new Button(this.width / 2 - 155, this.height - 28, 150, 20, DialogTexts.GUI_DONE, (press) -> {
             KeystrokesConfig.CLIENT_CONFIG.save();
+            KeystrokesConfig.refresh();
             this.minecraft.displayGuiScreen(null);
         }));
 
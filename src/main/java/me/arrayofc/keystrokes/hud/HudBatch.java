@@ -0,0 +1,255 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import me.arrayofc.keystrokes.color.ColorManager;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.IRenderTypeBuffer;
+import net.minecraft.client.renderer.WorldVertexBufferUploader;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.util.math.vector.Matrix4f;
+import net.minecraft.util.math.vector.Vector3f;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Collects the geometry and text of all the overlay HUDs rendered during a frame,
+ * so that everything can be drawn with a single flush instead of one draw call per key.
+ * <p>
+ * Everything added is positioned relative to the origin of the overlay being rendered, which is kept in
+ * reused matrices instead of a matrix stack, so adding to the batch doesn't allocate anything.
+ * <p>
+ * All the quads are drawn before all the text, so an overlay overlapping one already in the batch
+ * flushes the batch first. Otherwise the text of the overlay below would show through the one on top.
+ * <p>
+ * The vertices and text end up in a {@link Sink}, which draws them with the render system unless another one is given.
+ */
+public class HudBatch {
+
+    // The sink receiving the vertices and text
+    private final Sink sink;
+
+    // Whether or not the sink has been started
+    private boolean drawing = false;
+
+    // The position of the overlay being rendered
+    private float originX, originY;
+    private final Vector3f origin = new Vector3f();
+
+    // The matrix positioning and scaling the text of the overlay being rendered
+    private final Matrix4f textMatrix = new Matrix4f();
+
+    // The bounds of the overlays collected since the batch was started, empty if max < min
+    private float minX, minY, maxX = -1, maxY = -1;
+
+    public HudBatch() {
+        this(new BufferSink());
+    }
+
+    public HudBatch(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Starts collecting a new batch.
+     */
+    public void begin() {
+        if (this.drawing) return;
+
+        this.sink.begin();
+        this.drawing = true;
+
+        this.minX = this.minY = 0;
+        this.maxX = this.maxY = -1;
+    }
+
+    /**
+     * Moves the origin everything is positioned relative to, e.g. to the position of the next overlay.
+     * <p>
+     * If the overlay overlaps one collected before, everything collected so far is drawn first.
+     *
+     * @param x         The X position of the origin.
+     * @param y         The Y position of the origin.
+     * @param width     The width of the overlay.
+     * @param height    The height of the overlay.
+     * @param textScale The matrix scaling the text, see {@link OverlayLayout#getTextScale()}.
+     */
+    public void setOrigin(float x, float y, float width, float height, Matrix4f textScale) {
+        if (this.drawing && x < this.maxX && this.minX < x + width && y < this.maxY && this.minY < y + height) {
+            this.flush();
+            this.begin();
+        }
+
+        if (this.maxX < this.minX) {
+            this.minX = x;
+            this.minY = y;
+            this.maxX = x + width;
+            this.maxY = y + height;
+        } else {
+            this.minX = Math.min(this.minX, x);
+            this.minY = Math.min(this.minY, y);
+            this.maxX = Math.max(this.maxX, x + width);
+            this.maxY = Math.max(this.maxY, y + height);
+        }
+
+        this.originX = x;
+        this.originY = y;
+
+        this.origin.set(x, y, 0);
+        this.textMatrix.setIdentity();
+        this.textMatrix.translate(this.origin);
+        this.textMatrix.mul(textScale);
+    }
+
+    /**
+     * Adds every keystroke of an overlay hud to the batch, at the position of the overlay.
+     *
+     * @param hud    The overlay hud to add.
+     * @param layout The compiled layout of the overlay.
+     */
+    public void addOverlay(OverlayHud hud, OverlayLayout layout) {
+        final HudPosition hudPosition = hud.getHudPosition();
+
+        // everything added to the batch from here on is positioned relative to the hud
+        this.setOrigin(hudPosition.getX(), hudPosition.getY(), layout.getWidth(), layout.getHeight(), layout.getTextScale());
+
+        for (OverlayLayout.Cell cell : layout.getCells()) {
+            cell.getKeystroke().render(hud, cell, this);
+        }
+    }
+
+    /**
+     * Adds a filled rectangle with a single color to the batch.
+     *
+     * @param color  Color RGB value.
+     * @param alpha  The alpha value, if not valid it's taken from the color.
+     */
+    public void quad(float minX, float minY, float maxX, float maxY, int color, float alpha) {
+        this.gradientQuad(minX, minY, maxX, maxY, color, color, alpha);
+    }
+
+    /**
+     * Adds a filled rectangle fading horizontally from one color to another to the batch.
+     *
+     * @param leftColor  Color RGB value of the left edge.
+     * @param rightColor Color RGB value of the right edge.
+     * @param alpha      The alpha value, if not valid it's taken from the colors.
+     */
+    public void gradientQuad(float minX, float minY, float maxX, float maxY, int leftColor, int rightColor, float alpha) {
+        this.vertex(minX, maxY, leftColor, alpha);
+        this.vertex(maxX, maxY, rightColor, alpha);
+        this.vertex(maxX, minY, rightColor, alpha);
+        this.vertex(minX, minY, leftColor, alpha);
+    }
+
+    /**
+     * Adds a string of text to the batch, at the scale of the overlay being rendered.
+     *
+     * @param text   Text to render.
+     * @param x      The X position, in the scaled coordinates.
+     * @param y      The Y position, in the scaled coordinates.
+     * @param color  Color RGB value.
+     * @param shadow Whether or not the text should have a shadow.
+     */
+    public void text(String text, float x, float y, int color, boolean shadow) {
+        this.sink.text(text, x, y, color, shadow, this.textMatrix);
+    }
+
+    /**
+     * Draws everything collected in this batch, quads first so the text ends up on top.
+     */
+    public void flush() {
+        if (!this.drawing) return;
+        this.drawing = false;
+
+        this.sink.flush();
+    }
+
+    private void vertex(float x, float y, int color, float alpha) {
+        alpha = ColorManager.getAlpha(color, alpha);
+
+        float red = (color >> 16 & 0xFF) / 255.0f;
+        float green = (color >> 8 & 0xFF) / 255.0f;
+        float blue = (color & 0xFF) / 255.0f;
+
+        // the quads are only translated, so there's no need to transform them with a matrix
+        this.sink.vertex(this.originX + x, this.originY + y, red, green, blue, alpha);
+    }
+
+    /**
+     * Receives the vertices and text collected in a {@link HudBatch}.
+     * <p>
+     * Invoked for every key every frame, so implementations must not allocate anything either.
+     */
+    public interface Sink {
+
+        /**
+         * Starts collecting the quads of a new batch.
+         */
+        void begin();
+
+        /**
+         * Adds a corner of a quad, in screen coordinates. Every four vertices make up a quad.
+         */
+        void vertex(float x, float y, float red, float green, float blue, float alpha);
+
+        /**
+         * Adds a string of text.
+         *
+         * @param matrix The matrix positioning and scaling the text, reused for the next overlay once this returns.
+         */
+        void text(String text, float x, float y, int color, boolean shadow, Matrix4f matrix);
+
+        /**
+         * Draws everything collected since the batch was started, quads first so the text ends up on top.
+         */
+        void flush();
+    }
+
+    /**
+     * Draws the batch with the render system, collecting the quads in a buffer and the text with the font renderer.
+     */
+    private static class BufferSink implements Sink {
+
+        // The packed light value used by the font renderer for full brightness
+        private static final int FULL_BRIGHT = 15728880;
+
+        // The buffer holding every background quad and space bar rectangle
+        private final BufferBuilder quadBuffer = new BufferBuilder(2048);
+
+        // The buffer holding the text of every keystroke
+        private final IRenderTypeBuffer.Impl textBuffer = IRenderTypeBuffer.getImpl(new BufferBuilder(2048));
+
+        @Override
+        public void begin() {
+            this.quadBuffer.begin(GL11.GL_QUADS, DefaultVertexFormats.POSITION_COLOR);
+        }
+
+        @Override
+        public void vertex(float x, float y, float red, float green, float blue, float alpha) {
+            this.quadBuffer.pos(x, y, 0).color(red, green, blue, alpha).endVertex();
+        }
+
+        @Override
+        public void text(String text, float x, float y, int color, boolean shadow, Matrix4f matrix) {
+            // the font renderer copies the matrix into the vertices right away
+            Minecraft.getInstance().fontRenderer.renderString(text, x, y, color, shadow, matrix, this.textBuffer, false, 0, FULL_BRIGHT);
+        }
+
+        @Override
+        public void flush() {
+            this.quadBuffer.finishDrawing();
+
+            RenderSystem.enableBlend();
+            RenderSystem.disableTexture();
+            RenderSystem.defaultBlendFunc();
+            RenderSystem.shadeModel(GL11.GL_SMOOTH);
+            WorldVertexBufferUploader.draw(this.quadBuffer);
+            RenderSystem.shadeModel(GL11.GL_FLAT);
+            RenderSystem.enableTexture();
+
+            RenderSystem.enableAlphaTest();
+            this.textBuffer.finish();
+            RenderSystem.disableBlend();
+        }
+    }
+}
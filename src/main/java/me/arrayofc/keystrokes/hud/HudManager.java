@@ -1,8 +1,9 @@
 package me.arrayofc.keystrokes.hud;
 
 import com.google.common.collect.Lists;
-import com.google.gson.stream.JsonReader;
+import com.google.common.collect.Maps;
 import me.arrayofc.keystrokes.Keystrokes;
+import me.arrayofc.keystrokes.KeystrokesConfig;
 import me.arrayofc.keystrokes.keystroke.Keystroke;
 import me.arrayofc.keystrokes.util.Strings;
 import net.minecraft.client.GameSettings;
@@ -11,87 +12,329 @@ import net.minecraft.client.gui.toasts.SystemToast;
 import net.minecraft.client.settings.KeyBinding;
 import net.minecraft.util.text.StringTextComponent;
 import net.minecraftforge.fml.loading.FMLPaths;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nullable;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * This class manages all the different overlay HUDs on the screen.
  */
 public class HudManager {
 
+    // The logger for this class
+    private static final Logger logger = LogManager.getLogger();
+
     // Main class instance
     private final Keystrokes keystrokes;
 
-    // The list of registered HUDs
-    private final List<OverlayHud> overlayHuds = Lists.newArrayList();
+    // The layout profiles, mapped by their names
+    private final Map<String, LayoutProfile> profiles = Maps.newLinkedHashMap();
+
+    // The profile whose overlay HUDs are shown
+    private volatile LayoutProfile activeProfile;
+
+    // The store holding the serialized overlay HUDs
+    private final OverlayStore store;
+
+    // The file the overlays are exported to and imported from
+    private final Path exportFile;
+
+    // The profiles being loaded in the background, null once they've been handed over to the client thread
+    private CompletableFuture<List<LayoutProfile>> loading;
 
-    // The directory where the serialized overlay HUDs are stored
-    private final Path hudFile;
+    // The queue writing the overlay files in the background
+    private final OverlaySaveQueue saveQueue = new OverlaySaveQueue();
+
+    // The watcher applying the changes made to the overlay files outside of the game
+    private final OverlayWatcher watcher;
+
+    // The index over the screen rectangles of the active profile's overlays
+    private final OverlaySpatialIndex spatialIndex = new OverlaySpatialIndex();
+
+    // The index from keybindings to the active profile's keystrokes showing them
+    private final OverlayKeyIndex keyIndex = new OverlayKeyIndex();
 
     public HudManager(Keystrokes keystrokes) {
         this.keystrokes = keystrokes;
-        this.hudFile = FMLPaths.CONFIGDIR.get().resolve("keystroke-overlays");
+        this.store = new OverlayStore(FMLPaths.CONFIGDIR.get());
+        this.exportFile = FMLPaths.CONFIGDIR.get().resolve("keystroke-overlays-export.json");
+        this.watcher = new OverlayWatcher(this, this.store, this.saveQueue);
+
+        this.activeProfile = new LayoutProfile(LayoutProfile.DEFAULT_NAME, Collections.emptyList(), KeystrokesConfig.snapshot());
+        this.profiles.put(this.activeProfile.getName(), this.activeProfile);
     }
 
     /**
-     * Registers the saved HUD overlays, and registers the default one if necessary.
+     * Starts loading the saved HUD overlays in the background, and registers the default one as a placeholder.
+     * <p>
+     * The loaded overlays replace the placeholder once they're handed over by {@link #finishLoading(boolean)}.
      */
     public void initialize() {
-        // if the directory doesn't exist, we'll need to create it
-        if (Files.notExists(this.hudFile)) {
-            try {
-                Files.createDirectory(this.hudFile);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        // shown until the saved overlays have been loaded, and kept if nothing was saved yet
+        this.createDefaultOverlay();
+
+        final int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Keystrokes Overlay Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.loading = CompletableFuture.supplyAsync(() -> this.loadProfiles(executor), executor);
+        this.loading.whenComplete((profiles, throwable) -> executor.shutdown());
+    }
+
+    /**
+     * Hands the profiles loaded in the background over to the client thread, replacing the placeholder.
+     * <p>
+     * Invoked at the start of every frame, and before the overlays are changed or saved.
+     *
+     * @param wait Whether or not to wait for the profiles if they're still being loaded.
+     */
+    public void finishLoading(boolean wait) {
+        if (this.loading == null || !wait && !this.loading.isDone()) return;
+
+        final List<LayoutProfile> profiles = this.loading.join();
+        this.loading = null;
+
+        // compile every layout now, so switching profiles never has to do it while rendering,
+        // it's done here as the keybindings can only be resolved on the client thread
+        for (int i = 0; i < profiles.size(); i++) {
+            // the active profile is shown with the values in the configuration file
+            profiles.get(i).prepareLayouts(i == 0 ? KeystrokesConfig.snapshot() : profiles.get(i).getConfig());
         }
 
-        // List the files in this directory
-        File[] files = this.hudFile.toFile().listFiles();
+        // if nothing was saved yet, the placeholder becomes the first default overlay
+        if (!profiles.isEmpty()) this.setProfiles(profiles);
 
-        // no files are in the dir, which means we'll have to create the first default one
-        if (files == null || files.length == 0) {
-            this.createDefaultOverlay();
-            return;
+        // write the store right away if it was just created, upgraded or overlays were imported
+        if (Files.notExists(this.store.getFile()) || this.store.isOutdated()) this.saveOverlays();
+
+        // pick up the overlay files changed or dropped in while the game is running, only once they've been loaded,
+        // so a change is never applied to the placeholder and then overwritten by the handover
+        this.watcher.start();
+    }
+
+    /**
+     * Replaces all the layout profiles.
+     *
+     * @param profiles The new profiles, with the one to activate first.
+     * @param save     Whether or not to save the new profiles to the store.
+     */
+    public void replaceProfiles(List<LayoutProfile> profiles, boolean save) {
+        this.finishLoading(true);
+
+        if (profiles.isEmpty()) {
+            profiles = Lists.newArrayList(new LayoutProfile(LayoutProfile.DEFAULT_NAME, Collections.emptyList(), KeystrokesConfig.snapshot()));
+        }
+
+        // the new active profile is shown with its own values, so they replace the live configuration
+        // before anything is saved, otherwise the values of the replaced profile would be stored with it
+        this.useConfig(profiles.get(0).getConfig());
+
+        // compile every layout now like when the profiles are loaded, so switching profiles never has to do it while rendering
+        for (LayoutProfile profile : profiles) {
+            profile.prepareLayouts(profile.getConfig());
+        }
+
+        this.setProfiles(profiles);
+        if (this.getOverlayHuds().isEmpty()) this.createDefaultOverlay();
+
+        if (save) this.saveOverlays();
+    }
+
+    /**
+     * Adds overlays to the active profile, replacing the ones with the same names, and saves them to the store.
+     *
+     * @param overlays The overlays to add.
+     */
+    public void mergeOverlays(List<OverlayHud> overlays) {
+        this.finishLoading(true);
+
+        for (OverlayHud overlayHud : overlays) {
+            this.getOverlayHuds().removeIf(hud -> {
+                if (!hud.getName().equals(overlayHud.getName())) return false;
+
+                hud.releaseRenderCache();
+                return true;
+            });
+            this.registerOverlay(overlayHud);
+        }
+        this.activeProfile.invalidateDefaultOverlay();
+        this.spatialIndex.rebuild(this.getOverlayHuds());
+        this.keyIndex.rebuild(this.getOverlayHuds());
+
+        this.saveOverlays();
+    }
+
+    private void setProfiles(List<LayoutProfile> profiles) {
+        // the replaced overlays are never shown again, so their framebuffers can be deleted
+        for (LayoutProfile profile : this.profiles.values()) {
+            profile.getOverlayHuds().forEach(OverlayHud::releaseRenderCache);
+        }
+        this.profiles.clear();
+
+        for (LayoutProfile profile : profiles) {
+            this.profiles.put(profile.getName(), profile);
+        }
+
+        this.activeProfile = profiles.get(0);
+        this.spatialIndex.rebuild(this.getOverlayHuds());
+        this.keyIndex.rebuild(this.getOverlayHuds());
+    }
+
+    private List<LayoutProfile> loadProfiles(Executor executor) {
+        List<LayoutProfile> profiles;
+        try {
+            profiles = this.store.load(executor);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Couldn't load the overlay HUDs", e);
+
+            // keep the unreadable store, so the next save doesn't overwrite the user's overlays
+            this.store.backup();
+            profiles = Lists.newArrayList();
+        }
+
+        final List<OverlayHud> dropIns = this.store.importDropIns(executor);
+        if (!dropIns.isEmpty() && profiles.isEmpty()) {
+            profiles.add(new LayoutProfile(LayoutProfile.DEFAULT_NAME, Collections.emptyList(), KeystrokesConfig.snapshot()));
+        }
+
+        // the dropped in overlays replace the saved ones of the active profile with the same names
+        for (OverlayHud overlayHud : dropIns) {
+            profiles.get(0).getOverlayHuds().removeIf(hud -> hud.getName().equals(overlayHud.getName()));
+            profiles.get(0).getOverlayHuds().add(overlayHud);
+        }
+
+        return profiles;
+    }
+
+    /**
+     * Returns all the layout profiles.
+     */
+    public Collection<LayoutProfile> getProfiles() {
+        return this.profiles.values();
+    }
+
+    /**
+     * Returns the profile whose overlay HUDs are shown.
+     */
+    public LayoutProfile getActiveProfile() {
+        return this.activeProfile;
+    }
+
+    /**
+     * Activates a layout profile, creating it as a copy of the active profile if it doesn't exist.
+     *
+     * @param name The name of the profile.
+     * @return The activated profile.
+     */
+    public LayoutProfile switchProfile(String name) {
+        this.finishLoading(true);
+
+        LayoutProfile profile = this.profiles.get(name);
+        if (profile == null) {
+            profile = this.copyProfile(this.activeProfile, name);
+            this.profiles.put(name, profile);
+        }
+
+        this.activateProfile(profile);
+        return profile;
+    }
+
+    /**
+     * Activates the next layout profile, in the alphabetical order of their names.
+     *
+     * @return The activated profile.
+     */
+    public LayoutProfile cycleProfile() {
+        this.finishLoading(true);
+
+        final List<String> names = Lists.newArrayList(this.profiles.keySet());
+        Collections.sort(names);
+
+        final String next = names.get((names.indexOf(this.activeProfile.getName()) + 1) % names.size());
+        this.activateProfile(this.profiles.get(next));
+
+        return this.activeProfile;
+    }
+
+    /**
+     * Compiles the layouts of every profile ahead of time, e.g. after the keybindings have changed.
+     */
+    public void prepareLayouts() {
+        for (LayoutProfile profile : this.profiles.values()) {
+            profile.prepareLayouts(profile == this.activeProfile ? KeystrokesConfig.snapshot() : profile.getConfig());
         }
+    }
+
+    private void activateProfile(LayoutProfile profile) {
+        if (profile == this.activeProfile) return;
+
+        // the live configuration values belong to the profile being left
+        this.activeProfile.setConfig(KeystrokesConfig.snapshot());
+
+        // the profiles are already laid out, so swapping the references is all it takes
+        this.activeProfile = profile;
+        this.spatialIndex.rebuild(profile.getOverlayHuds());
+        this.keyIndex.rebuild(profile.getOverlayHuds());
+
+        // the values of the new profile are set all at once, so the configuration is never a mix of both profiles
+        this.useConfig(profile.getConfig());
+
+        // remember which profile is active, a burst of switches is only written once
+        this.saveOverlays();
+    }
 
-        // loop the files in the directory & deserialize them
-        for (File file : files) {
-            try (JsonReader reader = new JsonReader(Files.newBufferedReader(file.toPath()))) {
-                OverlayHud overlayHud = Keystrokes.GSON.fromJson(reader, OverlayHud.class);
-                this.registerOverlay(overlayHud);
-
-            } catch (IOException e) {
-                // something went wrong when deserializing this file, so we'll remove it
-                try {
-                    Files.deleteIfExists(file.toPath());
-                } catch (IOException ignored) {
-                }
-            }
+    /**
+     * Replaces the live configuration values, and queues the configuration file to be written in the background.
+     */
+    private void useConfig(KeystrokesConfig.Snapshot config) {
+        KeystrokesConfig.use(config);
+        this.saveQueue.save(KeystrokesConfig.CLIENT_CONFIG, KeystrokesConfig::save);
+    }
+
+    private LayoutProfile copyProfile(LayoutProfile source, String name) {
+        final List<OverlayHud> overlays = Lists.newArrayList();
+        for (OverlayHud overlayHud : source.getOverlayHuds()) {
+            // the copied keystrokes are linked to the copied overlay when it's deserialized
+            overlays.add(Keystrokes.GSON.fromJson(Keystrokes.GSON.toJsonTree(overlayHud, OverlayHud.class), OverlayHud.class));
         }
+
+        final LayoutProfile profile = new LayoutProfile(name, overlays, KeystrokesConfig.snapshot());
+        profile.prepareLayouts(profile.getConfig());
+
+        return profile;
     }
 
     /**
-     * Returns all the registered HUD:s.
+     * Returns all the registered HUD:s of the active profile.
      */
     public List<OverlayHud> getOverlayHuds() {
-        return this.overlayHuds;
+        return this.activeProfile.getOverlayHuds();
     }
 
     /**
-     * Returns the default Overlay HUD.
+     * Returns the default Overlay HUD of the active profile.
      */
     public OverlayHud getDefaultOverlay() {
-        return this.overlayHuds.stream().filter(hud -> !hud.isCustom()).findFirst().orElseGet(this::createDefaultOverlay);
+        final OverlayHud defaultOverlay = this.activeProfile.getDefaultOverlay();
+        return defaultOverlay != null ? defaultOverlay : this.createDefaultOverlay();
     }
 
     /**
@@ -100,8 +343,10 @@ public class HudManager {
      * @param overlayHud The overlay hud to add.
      */
     public void registerOverlay(OverlayHud overlayHud) {
-        overlayHud.getAllKeystrokes().forEach(keystroke -> keystroke.setOwningOverlay(overlayHud.getName()));
-        this.keystrokes.getHudManager().getOverlayHuds().add(overlayHud);
+        overlayHud.getAllKeystrokes().forEach(keystroke -> keystroke.setOwningOverlay(overlayHud));
+        this.getOverlayHuds().add(overlayHud);
+        this.spatialIndex.update(overlayHud);
+        this.keyIndex.add(overlayHud);
     }
 
     /**
@@ -112,9 +357,10 @@ public class HudManager {
      */
     public OverlayHud registerOverlay(String name, EnumMap<OverlayHud.Section, List<Keystroke.Row>> rows, HudPosition hudPosition, boolean custom) {
         OverlayHud overlayHud = new OverlayHud(name, rows, hudPosition, custom);
-        overlayHud.getAllKeystrokes().forEach(keystroke -> keystroke.setOwningOverlay(overlayHud.getName()));
 
-        this.keystrokes.getHudManager().getOverlayHuds().add(overlayHud);
+        this.getOverlayHuds().add(overlayHud);
+        this.spatialIndex.update(overlayHud);
+        this.keyIndex.add(overlayHud);
 
         return overlayHud;
     }
@@ -126,38 +372,95 @@ public class HudManager {
      * @param overlayHud HUD to delete.
      */
     public void deleteOverlay(OverlayHud overlayHud) {
-        this.overlayHuds.remove(overlayHud);
+        this.finishLoading(true);
 
-        Path path = this.hudFile.resolve(overlayHud.getName() + ".json");
-        try {
-            Files.deleteIfExists(path);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        this.getOverlayHuds().remove(overlayHud);
+        overlayHud.releaseRenderCache();
+        this.spatialIndex.remove(overlayHud);
+        this.keyIndex.remove(overlayHud);
+        this.activeProfile.invalidateDefaultOverlay();
+
+        this.saveOverlays();
     }
 
     /**
-     * Saves a HUD overlay to the hud directory.
+     * Saves all the layout profiles to the overlay store.
+     * <p>
+     * The profiles are copied right away, but serialized and written to disk in the background.
+     */
+    public void saveOverlays() {
+        // never overwrite the store with the placeholder
+        this.finishLoading(true);
+
+        final List<LayoutProfile> profiles = this.getStoredProfiles();
+        final Path file = this.store.getFile();
+        this.saveQueue.write(file, () -> this.store.encode(profiles, file), this.store::markSaved);
+
+        // the storage format might have been changed, so we'll remove the store of the other format
+        this.saveQueue.delete(this.store.getStaleFile());
+    }
+
+    /**
+     * Exports all the layout profiles to a readable JSON file, regardless of the storage format.
+     * <p>
+     * The file is written in the background, a failure is reported like any other failed save.
      *
-     * @param overlayHud The hud overlay to save.
+     * @param onExported Invoked on the client thread with the file once the overlays have been exported.
      */
-    public void saveOverlay(OverlayHud overlayHud) {
-        Path path = this.hudFile.resolve(overlayHud.getName() + ".json");
-        String json = Keystrokes.GSON.toJson(overlayHud, OverlayHud.class);
+    public void exportOverlays(Consumer<Path> onExported) {
+        this.finishLoading(true);
 
-        try {
-            Files.write(path, json.getBytes());
-        } catch (IOException e) {
-            e.printStackTrace();
+        final List<LayoutProfile> profiles = this.getStoredProfiles();
+        this.saveQueue.write(this.exportFile, () -> this.store.encodeJson(profiles),
+                () -> Minecraft.getInstance().execute(() -> onExported.accept(this.exportFile)));
+    }
+
+    /**
+     * Replaces all the layout profiles with the ones in the export file.
+     *
+     * @throws IOException If the file couldn't be read or parsed.
+     */
+    public void importOverlays() throws IOException {
+        this.finishLoading(true);
+
+        this.replaceProfiles(this.store.read(this.exportFile, Runnable::run), true);
+    }
 
-            // alert the user that the overlay wasn't saved
-            SystemToast.addOrUpdate(Minecraft.getInstance().getToastGui(), SystemToast.Type.TUTORIAL_HINT, new StringTextComponent("Warning"),
-                    new StringTextComponent("Couldn't save overlay."));
+    /**
+     * Returns copies of the profiles as they're stored, with the active one first.
+     * <p>
+     * The copies aren't changed afterwards, so they can be encoded on the writer thread.
+     */
+    private List<LayoutProfile> getStoredProfiles() {
+        // the live configuration values belong to the active profile
+        this.activeProfile.setConfig(KeystrokesConfig.snapshot());
+
+        final List<LayoutProfile> profiles = Lists.newArrayListWithCapacity(this.profiles.size());
+        profiles.add(this.activeProfile.copy());
+        for (LayoutProfile profile : this.profiles.values()) {
+            if (profile != this.activeProfile) profiles.add(profile.copy());
         }
+        return profiles;
+    }
+
+    /**
+     * Returns the index over the screen rectangles of the active profile's overlays.
+     */
+    public OverlaySpatialIndex getSpatialIndex() {
+        return this.spatialIndex;
+    }
+
+    /**
+     * Returns the index from keybindings to the keystrokes of the active profile showing them.
+     */
+    public OverlayKeyIndex getKeyIndex() {
+        return this.keyIndex;
     }
 
     /**
      * Attempts to find a {@link OverlayHud} at a clicked position on the screen.
+     * <p>
+     * If overlays overlap, the one on top is returned.
      *
      * @param x X position
      * @param y Y position
@@ -165,73 +468,49 @@ public class HudManager {
      */
     @Nullable
     public OverlayHud getClickedOverlay(double x, double y) {
-        return this.overlayHuds.stream().filter(overlayHud -> this.isInsideOverlay(overlayHud.getHudPosition(), x, y))
-                .findFirst().orElse(null);
+        return this.spatialIndex.getOverlayAt(x, y);
     }
 
     /**
-     * Attempts to find a suitable location for a new HUD overlay to appear at.
+     * Moves an overlay HUD on top of the others, so it's rendered last and hit first when clicked.
      *
-     * @param from The location to start looking from.
-     * @return Returns the suitable location, null if no location were suitable.
+     * @param overlayHud HUD to move.
      */
-    @Nullable
-    public HudPosition getSuitableLocation(HudPosition from) {
-        HudPosition hudPosition = from.clone();
-
-        double currentX = hudPosition.getX(), currentY = hudPosition.getY();
-
-        while (this.isOccupied(currentX, currentY)) {
-            currentX += 10;
+    public void bringToFront(OverlayHud overlayHud) {
+        final List<OverlayHud> overlayHuds = this.getOverlayHuds();
+        if (overlayHuds.isEmpty() || overlayHuds.get(overlayHuds.size() - 1) == overlayHud || !overlayHuds.remove(overlayHud)) return;
 
-            // x went as far as it could, now we'll go down 20px and attempt to find a place on this line
-            if (currentX >= this.keystrokes.getHudRenderer().getScreenDimensions()[0]) {
-                currentY += 20;
-                currentX = 5;
-            }
-
-            // if no suitable location was found then we'll return null
-            if (currentY >= this.keystrokes.getHudRenderer().getScreenDimensions()[1]) {
-                return null;
-            }
-        }
-
-        hudPosition.setX((int) currentX);
-        hudPosition.setY((int) currentY);
-
-        return hudPosition;
+        // the z-order is the order of the list, so it's saved along with the overlays
+        overlayHuds.add(overlayHud);
+        this.spatialIndex.rebuild(overlayHuds);
     }
 
     /**
-     * Checks if a X- and Y position is occupied by an overlay on the screen.
+     * Moves an overlay HUD below the others, so it's rendered first and hit last when clicked.
      *
-     * @param x X position
-     * @param y Y posistion
-     * @return True if occupied, false otherwise.
+     * @param overlayHud HUD to move.
      */
-    public boolean isOccupied(double x, double y) {
-        return this.overlayHuds.stream().anyMatch(overlayHud -> this.isInsideOverlay(overlayHud.getHudPosition(), x, y));
+    public void sendToBack(OverlayHud overlayHud) {
+        final List<OverlayHud> overlayHuds = this.getOverlayHuds();
+        if (overlayHuds.isEmpty() || overlayHuds.get(0) == overlayHud || !overlayHuds.remove(overlayHud)) return;
+
+        overlayHuds.add(0, overlayHud);
+        this.spatialIndex.rebuild(overlayHuds);
     }
 
     /**
-     * Checks whether or not a position is inside of the HUD area.
+     * Attempts to find a suitable location for a new HUD overlay to appear at.
+     *
+     * The free space between the overlays is looked up in the {@link OverlaySpatialIndex},
+     * which picks the free slot fitting the size of the HUD the best.
      *
-     * @param clickX X-position
-     * @param clickY Y-position
-     * @return True if inside, false otherwise.
+     * @param from The preferred location and the size of the HUD.
+     * @return Returns the suitable location, null if no location were suitable.
      */
-    public boolean isInsideOverlay(HudPosition hudPosition, double clickX, double clickY) {
-        int width = hudPosition.getWidth();
-        int height = hudPosition.getHeight();
-        if ((width | height) < 0) return false;
-
-        int x = hudPosition.getX();
-        int y = hudPosition.getY();
-        if (clickX < x || clickY < y) return false;
-
-        width += x;
-        height += y;
-        return ((width < x || width > clickX) && (height < y || height > clickY));
+    @Nullable
+    public HudPosition getSuitableLocation(HudPosition from) {
+        final HudRenderer hudRenderer = this.keystrokes.getHudRenderer();
+        return this.spatialIndex.findFreeSlot(from, hudRenderer.getScreenWidth(), hudRenderer.getScreenHeight());
     }
 
     /**
@@ -241,23 +520,7 @@ public class HudManager {
      * @return True if a HUD overlay is already including this keybind.
      */
     public boolean isKeybindBusy(KeyBinding keyBinding) {
-        // loop overlay huds
-        for (OverlayHud overlayHud : this.overlayHuds) {
-            // list of rows
-            for (Map.Entry<OverlayHud.Section, List<Keystroke.Row>> entry : overlayHud.getRowMap().entrySet()) {
-                // rows
-                for (Keystroke.Row row : entry.getValue()) {
-                    // keystrokes on row
-                    for (Keystroke keystroke : row.getKeystrokes()) {
-                        if (keystroke.isBarrier()) continue;
-                        if (keystroke.getKeyBinding() != null && keystroke.getKeyBinding() == keyBinding) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
+        return this.keyIndex.contains(keyBinding);
     }
 
     /**
@@ -301,6 +564,8 @@ public class HudManager {
      * @param keyBinding Keybinding to create overlay hud for.
      */
     public void createOverlayFromKeybind(KeyBinding keyBinding) {
+        this.finishLoading(true);
+
         Keystroke keystroke;
 
         // build the row map
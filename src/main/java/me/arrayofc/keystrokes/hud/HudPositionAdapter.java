@@ -0,0 +1,51 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializes {@link HudPosition} objects.
+ */
+public class HudPositionAdapter extends TypeAdapter<HudPosition> {
+
+    @Override
+    public void write(JsonWriter out, HudPosition position) throws IOException {
+        out.beginObject();
+        out.name("x").value(position.getX());
+        out.name("y").value(position.getY());
+        out.name("width").value(position.getWidth());
+        out.name("height").value(position.getHeight());
+        out.endObject();
+    }
+
+    @Override
+    public HudPosition read(JsonReader in) throws IOException {
+        final HudPosition position = new HudPosition();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "x":
+                    position.setX(in.nextInt());
+                    break;
+                case "y":
+                    position.setY(in.nextInt());
+                    break;
+                case "width":
+                    position.setWidth(in.nextInt());
+                    break;
+                case "height":
+                    position.setHeight(in.nextInt());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return position;
+    }
+}
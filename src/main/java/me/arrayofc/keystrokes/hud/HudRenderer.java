@@ -1,7 +1,6 @@
 package me.arrayofc.keystrokes.hud;
 
 import com.mojang.blaze3d.matrix.MatrixStack;
-import com.mojang.blaze3d.platform.GlStateManager;
 import me.arrayofc.keystrokes.Keystrokes;
 import me.arrayofc.keystrokes.KeystrokesConfig;
 import me.arrayofc.keystrokes.keystroke.Keystroke;
@@ -32,8 +31,14 @@ public class HudRenderer extends Screen {
     // The current overlay hud we're dragging
     private OverlayHud dragging = null;
 
-    // The current key width offset for the rainbow effect
-    public double rainbowXOffset;
+    // The batch every overlay is collected into before being drawn
+    private final HudBatch batch = new HudBatch();
+
+    // The batch the overlays are rendered into their offscreen caches with
+    private final HudBatch cacheBatch = new HudBatch();
+
+    // Incremented when every overlay cache has to be rendered again, e.g. after a resource reload
+    private int cacheGeneration = 0;
 
     public HudRenderer(Keystrokes keystrokes) {
         super(new TranslationTextComponent(""));
@@ -50,7 +55,7 @@ public class HudRenderer extends Screen {
         super.addButton(new Button(super.width / 2 - 75, super.height - 28, 150, 20, DialogTexts.GUI_DONE, (press) -> {
             Minecraft.getInstance().displayGuiScreen(null);
             // update the hud positioning in the config
-            this.keystrokes.getHudManager().getOverlayHuds().forEach(overlayHud -> this.keystrokes.getHudManager().saveOverlay(overlayHud));
+            this.keystrokes.getHudManager().saveOverlays();
         }));
     }
 
@@ -115,88 +120,54 @@ public class HudRenderer extends Screen {
     /**
      * Renders all the registered {@link OverlayHud}.
      * <p>
+     * The overlays are drawn from their {@link OverlayRenderCache}, which only renders the changed keystrokes again.
+     * The rainbow effect changes every frame, so with it the overlays are collected into a single {@link HudBatch}
+     * and flushed once at the end instead.
+     * <p>
      * This method is continually invoked, even if the {@link Minecraft#currentScreen} is not set to this object.
      */
     public void renderScreenOverlays() {
-        final boolean isRainbow = KeystrokesConfig.RAINBOW.get();
-
-        // get all the registered huds from the hud manager
-        for (OverlayHud overlay : this.keystrokes.getHudManager().getOverlayHuds()) {
-            final HudPosition hudPosition = overlay.getHudPosition();
-
-            // push matrix and manipulate the current matrix with the huds x and y position
-            GlStateManager.pushMatrix();
-            GlStateManager.translated(hudPosition.getX(), hudPosition.getY(), 0.0);
-
-            // with these variables we count the current height and width of the hud
-            int currentHeight = 0, currentWidth = 0;
-            boolean countedWidth = false;
-
-            // loop the lists of rows in this overlay
-            for (Map.Entry<OverlayHud.Section, List<Keystroke.Row>> rowEntry : overlay.getRowMap().entrySet()) {
-                if (!overlay.isCustom()) {
-                    // skip the hud components that are disabled in the settings
-                    if (rowEntry.getKey() == OverlayHud.Section.KEY && !KeystrokesConfig.SHOW_MOVEMENT.get()) continue;
-                    if (rowEntry.getKey() == OverlayHud.Section.MOUSE && !KeystrokesConfig.SHOW_MOUSE.get()) continue;
-                    if (rowEntry.getKey() == OverlayHud.Section.SPACEBAR && !KeystrokesConfig.SHOW_SPACEBAR.get()) continue;
-                }
-
-                // now loop the rows in the list
-                for (int i = 0; i < rowEntry.getValue().size(); i++) {
-                    final Keystroke.Row row = rowEntry.getValue().get(i);
-
-                    // we'll only count the width of an overlay once
-                    if (i > 0) countedWidth = true;
-
-                    // push the matrix
-                    GlStateManager.pushMatrix();
+        // the rainbow colors change every frame, so there would be nothing worth caching
+        final boolean cached = !KeystrokesConfig.snapshot().isRainbow();
 
-                    // loop the keystrokes on this row
-                    for (int k = 0; k < row.getKeystrokes().size(); k++) {
-                        Keystroke keystroke = row.getKeystrokes().get(k);
-                        // render keystroke if it's not a barrier
-                        if (!keystroke.isBarrier()) keystroke.render(overlay);
+        // everything from here on is collected into the batch & drawn at once
+        if (!cached) this.batch.begin();
 
-                        // increment the x offset for the keystroke next to this
-                        double xOffset = keystroke.getWidth() + (rowEntry.getKey() == OverlayHud.Section.MOUSE ? 2 : 1.5) * overlay.getScale();
-
-                        // increment the count of the width of the overlay
-                        if (!countedWidth) currentWidth += xOffset;
-
-                        GlStateManager.translated(xOffset, 0, 0);
-
-                        if (isRainbow) {
-                            // increment the keystroke rainbow effect offset
-                            this.rainbowXOffset += xOffset / keystroke.getWidth();
-                        }
-                    }
-
-                    // for every push, we need to pop
-                    GlStateManager.popMatrix();
-                    // and once again change matrix
-                    GlStateManager.translated(0, row.getRowHeightOffset(), 0);
-
-                    if (isRainbow) {
-                        // reset the offset
-                        this.rainbowXOffset = 0f;
-                    }
+        // get all the registered huds from the hud manager, indexed so no iterator is allocated every frame
+        final List<OverlayHud> overlayHuds = this.keystrokes.getHudManager().getOverlayHuds();
+        for (int i = 0; i < overlayHuds.size(); i++) {
+            final OverlayHud overlay = overlayHuds.get(i);
+            final HudPosition hudPosition = overlay.getHudPosition();
+            final OverlayLayout layout = overlay.getLayout();
 
-                    // increment the height count with the row height offset
-                    currentHeight += row.getRowHeightOffset();
-                }
+            if (cached) {
+                overlay.getRenderCache().render(overlay, layout, this.cacheBatch, this.cacheGeneration);
+            } else {
+                this.batch.addOverlay(overlay, layout);
             }
 
             // set the width and height of the overlay, in case it has changed
-            hudPosition.setWidth(currentWidth);
-            // subtract the last offset from the width and height
-            hudPosition.setHeight(currentHeight - 1 + ((int) overlay.getScale()));
-
-            // finally pop the matrix from the first push
-            GlStateManager.popMatrix();
+            hudPosition.setWidth(layout.getWidth());
+            hudPosition.setHeight(layout.getHeight());
 
             // lastly we'll make sure the overlay is with in screen parameters
             this.checkDimensions(hudPosition);
+
+            // keep the spatial index in line with where the overlay ended up, cheap when nothing has changed
+            this.keystrokes.getHudManager().getSpatialIndex().update(overlay);
         }
+
+        // draw all the collected quads and text
+        if (!cached) this.batch.flush();
+    }
+
+    /**
+     * Makes every overlay render its offscreen cache again the next time it's shown.
+     * <p>
+     * Invoked when the resources have been reloaded, which might have changed the labels or the font.
+     */
+    public void invalidateOverlayCaches() {
+        this.cacheGeneration++;
     }
 
     /**
@@ -210,24 +181,29 @@ public class HudRenderer extends Screen {
         if (hudPosition.getY() < 5)
             hudPosition.setY(5);
 
-        final int[] dimensions = this.getScreenDimensions();
+        final int screenWidth = this.getScreenWidth(), screenHeight = this.getScreenHeight();
 
-        if (hudPosition.getX() + hudPosition.getWidth() > dimensions[0] - 5)
-            hudPosition.setX(dimensions[0] - 5 - hudPosition.getWidth());
+        if (hudPosition.getX() + hudPosition.getWidth() > screenWidth - 5)
+            hudPosition.setX(screenWidth - 5 - hudPosition.getWidth());
 
-        if (hudPosition.getY() + hudPosition.getHeight() > dimensions[1] - 5)
-            hudPosition.setY(dimensions[1] - 5 - hudPosition.getHeight());
+        if (hudPosition.getY() + hudPosition.getHeight() > screenHeight - 5)
+            hudPosition.setY(screenHeight - 5 - hudPosition.getHeight());
     }
 
     /**
-     * Returns the current screen width and height.
+     * Returns the current screen width.
      */
-    public int[] getScreenDimensions() {
-        if (Minecraft.getInstance().currentScreen != null) {
-            return new int[]{Minecraft.getInstance().currentScreen.width, Minecraft.getInstance().currentScreen.height};
-        } else {
-            return new int[]{Minecraft.getInstance().getMainWindow().getWidth(), Minecraft.getInstance().getMainWindow().getHeight()};
-        }
+    public int getScreenWidth() {
+        final Screen screen = Minecraft.getInstance().currentScreen;
+        return screen != null ? screen.width : Minecraft.getInstance().getMainWindow().getWidth();
+    }
+
+    /**
+     * Returns the current screen height.
+     */
+    public int getScreenHeight() {
+        final Screen screen = Minecraft.getInstance().currentScreen;
+        return screen != null ? screen.height : Minecraft.getInstance().getMainWindow().getHeight();
     }
 
     /**
@@ -241,12 +217,10 @@ public class HudRenderer extends Screen {
         int width = x + hudPosition.getWidth();
         int height = y + hudPosition.getHeight();
 
-        int[] dimensions = this.getScreenDimensions();
-
-        if (width > dimensions[0] - 5) {
+        if (width > this.getScreenWidth() - 5) {
             return true;
 
-        } else if (height > dimensions[1] - 5) {
+        } else if (height > this.getScreenHeight() - 5) {
             return true;
 
         } else if (hudPosition.getX() < 5) {
@@ -265,9 +239,9 @@ public class HudRenderer extends Screen {
         for (Map.Entry<OverlayHud.Section, List<Keystroke.Row>> entry : hud.getRowMap().entrySet()) {
             for (Keystroke.Row row : entry.getValue()) {
                 for (Keystroke keystroke : row.getKeystrokes()) {
-                    keystroke.setHeight(Keystroke.DEFAULT_KEY_SCALE.get(keystroke.getKeyType()).getLeft() * scale);
+                    keystroke.setHeight(keystroke.getKeyType().getDefaultHeight() * scale);
                     if (keystroke.isDefault() || keystroke.getTextContent().length() <= 3) {
-                        keystroke.setWidth(Keystroke.DEFAULT_KEY_SCALE.get(keystroke.getKeyType()).getRight() * scale);
+                        keystroke.setWidth(keystroke.getKeyType().getDefaultWidth() * scale);
                     } else {
                         keystroke.updateTextWidth();
                         keystroke.setWidth(keystroke.getTextWidth() + 5 * scale);
@@ -275,6 +249,17 @@ public class HudRenderer extends Screen {
                 }
             }
         }
+
+        // the key sizes have changed, so the layout needs to be compiled again
+        hud.invalidateLayout();
+
+        // resize the overlay right away, so the spatial index doesn't have to wait for the next frame
+        final OverlayLayout layout = hud.getLayout();
+        hud.getHudPosition().setWidth(layout.getWidth());
+        hud.getHudPosition().setHeight(layout.getHeight());
+        this.checkDimensions(hud.getHudPosition());
+
+        this.keystrokes.getHudManager().getSpatialIndex().update(hud);
     }
 
     @Override
@@ -283,9 +268,16 @@ public class HudRenderer extends Screen {
             // check if there's a hud overlay at this clicked location
             OverlayHud clicked = this.keystrokes.getHudManager().getClickedOverlay(mouseX, mouseY);
             if (clicked != null) {
-                // if so, we'll set it into drag mode
+                // if so, we'll set it into drag mode & put it on top of the others
                 clicked.setDragMode(true);
                 this.dragging = clicked;
+                this.keystrokes.getHudManager().bringToFront(clicked);
+            }
+        } else if (button == 1) { // (right click mouse)
+            // put the clicked overlay below the others, so the ones under it can be reached
+            OverlayHud clicked = this.keystrokes.getHudManager().getClickedOverlay(mouseX, mouseY);
+            if (clicked != null && this.dragging == null) {
+                this.keystrokes.getHudManager().sendToBack(clicked);
             }
         }
         return super.mouseClicked(mouseX, mouseY, button);
@@ -314,20 +306,21 @@ public class HudRenderer extends Screen {
                 int lastX = this.dragging.getLastX();
                 int lastY = this.dragging.getLastY();
 
-                // 0 == width, 1 == height
-                final int[] dimensions = getScreenDimensions();
+                final int screenWidth = this.getScreenWidth(), screenHeight = this.getScreenHeight();
 
                 // quick check if the last values are ok, if not we'll fix them
                 if (lastX < 5) lastX = 5;
                 if (lastY < 5) lastY = 5;
-                if (lastX + this.dragging.getHudPosition().getWidth() > dimensions[0])
-                    lastX = dimensions[0] - 5 - this.dragging.getHudPosition().getWidth();
-                if (lastY + this.dragging.getHudPosition().getHeight() > dimensions[1])
-                    lastY = dimensions[1] - 5 - this.dragging.getHudPosition().getHeight();
+                if (lastX + this.dragging.getHudPosition().getWidth() > screenWidth)
+                    lastX = screenWidth - 5 - this.dragging.getHudPosition().getWidth();
+                if (lastY + this.dragging.getHudPosition().getHeight() > screenHeight)
+                    lastY = screenHeight - 5 - this.dragging.getHudPosition().getHeight();
 
                 // move the HUD to the ok location
                 this.dragging.getHudPosition().move(lastX, lastY);
             }
+
+            this.keystrokes.getHudManager().getSpatialIndex().update(this.dragging);
         }
 
         return super.mouseDragged(mouseX, mouseY, button, dragX, dragY);
@@ -366,7 +359,6 @@ public class HudRenderer extends Screen {
         }
 
         // when the screen is closed we'll save the overlay huds
-        this.keystrokes.getHudManager().getOverlayHuds().forEach(overlayHud -> this.keystrokes.getHudManager().saveOverlay(overlayHud));
-        this.keystrokes.getHudManager().getOverlayHuds().forEach(hud -> this.keystrokes.getHudManager().saveOverlay(hud));
+        this.keystrokes.getHudManager().saveOverlays();
     }
 }
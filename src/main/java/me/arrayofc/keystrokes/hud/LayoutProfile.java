@@ -0,0 +1,119 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.common.collect.Lists;
+import me.arrayofc.keystrokes.KeystrokesConfig;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * A named set of overlay HUDs, along with the configuration values they're shown with.
+ * <p>
+ * Every profile is kept in memory with its layouts compiled, so switching to another profile
+ * only swaps the active profile in the {@link HudManager}.
+ */
+public class LayoutProfile {
+
+    // The name of the profile the overlays are kept in when no other profile has been created
+    public static final String DEFAULT_NAME = "default";
+
+    // The name of this profile
+    private final String name;
+
+    // The overlay HUDs of this profile
+    private final List<OverlayHud> overlayHuds;
+
+    // The configuration values of this profile, while active the live configuration is used instead
+    private KeystrokesConfig.Snapshot config;
+
+    // The default overlay HUD, cached so it doesn't have to be looked up
+    private OverlayHud defaultOverlay;
+
+    public LayoutProfile(String name, List<OverlayHud> overlayHuds, KeystrokesConfig.Snapshot config) {
+        this.name = name;
+        this.overlayHuds = Lists.newArrayList(overlayHuds);
+        this.config = config;
+    }
+
+    /**
+     * Creates a copy of this profile with copies of its overlays, so it can be encoded on another thread.
+     */
+    public LayoutProfile copy() {
+        final List<OverlayHud> overlayHuds = Lists.newArrayListWithCapacity(this.overlayHuds.size());
+        for (OverlayHud overlayHud : this.overlayHuds) {
+            overlayHuds.add(overlayHud.copy());
+        }
+        return new LayoutProfile(this.name, overlayHuds, this.config);
+    }
+
+    /**
+     * Returns the name of this profile.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the overlay HUDs of this profile.
+     */
+    public List<OverlayHud> getOverlayHuds() {
+        return this.overlayHuds;
+    }
+
+    /**
+     * Returns the configuration values of this profile, as they were when the profile was last active.
+     */
+    public KeystrokesConfig.Snapshot getConfig() {
+        return this.config;
+    }
+
+    /**
+     * Sets the configuration values of this profile.
+     */
+    public void setConfig(KeystrokesConfig.Snapshot config) {
+        this.config = config;
+    }
+
+    /**
+     * Returns the default overlay HUD of this profile, null if it doesn't have one.
+     */
+    @Nullable
+    public OverlayHud getDefaultOverlay() {
+        if (this.defaultOverlay == null) {
+            this.defaultOverlay = this.overlayHuds.stream().filter(hud -> !hud.isCustom()).findFirst().orElse(null);
+        }
+        return this.defaultOverlay;
+    }
+
+    /**
+     * Discards the cached default overlay HUD, invoked when the overlays have changed.
+     */
+    public void invalidateDefaultOverlay() {
+        this.defaultOverlay = null;
+    }
+
+    /**
+     * Finds an overlay HUD in this profile by its name.
+     *
+     * @param name The name of the overlay.
+     * @return The overlay, null if there's none with the name.
+     */
+    @Nullable
+    public OverlayHud getOverlay(String name) {
+        for (OverlayHud overlayHud : this.overlayHuds) {
+            if (overlayHud.getName().equals(name)) return overlayHud;
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the layouts of all the overlays ahead of time.
+     *
+     * @param config The configuration values the overlays are going to be shown with.
+     */
+    public void prepareLayouts(KeystrokesConfig.Snapshot config) {
+        for (OverlayHud overlayHud : this.overlayHuds) {
+            overlayHud.prepareLayout(config);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import me.arrayofc.keystrokes.KeystrokesConfig;
+import me.arrayofc.keystrokes.color.ColorTab;
+import me.arrayofc.keystrokes.keystroke.Keystroke;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compact binary encoding of the overlay store.
+ * <p>
+ * Version 1 stores hold the overlays of a single profile, version 2 stores hold all the {@link LayoutProfile}s.
+ * <p>
+ * Numbers are written as variable length integers, colors as three bytes per {@link ColorTab}, and every
+ * keybinding description and overlay name is written once in a string table and referenced by its index.
+ */
+public class OverlayBinaryCodec {
+
+    // The bytes every binary store starts with, so it can be told apart from a JSON store
+    private static final byte[] MAGIC = {'K', 'S', 'O', 'V'};
+
+    // The cached enum values, indexed by their ordinals
+    private static final OverlayHud.Section[] SECTIONS = OverlayHud.Section.values();
+    private static final ColorTab[] COLOR_TABS = ColorTab.values();
+    private static final Keystroke.KeyType[] KEY_TYPES = Keystroke.KeyType.values();
+    private static final KeystrokesConfig.CpsType[] CPS_TYPES = KeystrokesConfig.CpsType.values();
+    private static final KeystrokesConfig.MoveType[] MOVE_TYPES = KeystrokesConfig.MoveType.values();
+
+    /**
+     * Checks whether or not the content of a store file is in the binary format.
+     */
+    public static boolean isBinary(byte[] content) {
+        if (content.length < MAGIC.length) return false;
+
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (content[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Encodes profiles in the binary format.
+     *
+     * @param profiles The profiles to encode, with the active one first.
+     * @param version  The version of the store.
+     * @return The encoded store.
+     */
+    public byte[] encode(List<LayoutProfile> profiles, int version) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC);
+            writeVarInt(out, version);
+
+            // collect the string table first, so the overlays only have to refer to indexes
+            final List<String> strings = Lists.newArrayList();
+            final Map<String, Integer> indexes = Maps.newHashMap();
+            for (LayoutProfile profile : profiles) {
+                intern(profile.getName(), strings, indexes);
+
+                for (OverlayHud overlayHud : profile.getOverlayHuds()) {
+                    intern(overlayHud.getName(), strings, indexes);
+                    for (Keystroke keystroke : overlayHud.getAllKeystrokes()) {
+                        intern(keystroke.getKeyBindingDescription(), strings, indexes);
+                    }
+                }
+            }
+
+            writeVarInt(out, strings.size());
+            for (String string : strings) {
+                final byte[] utf = string.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, utf.length);
+                out.write(utf);
+            }
+
+            writeVarInt(out, profiles.size());
+            for (LayoutProfile profile : profiles) {
+                writeVarInt(out, indexes.get(profile.getName()));
+                this.writeConfig(out, profile.getConfig());
+
+                writeVarInt(out, profile.getOverlayHuds().size());
+                for (OverlayHud overlayHud : profile.getOverlayHuds()) {
+                    this.writeOverlay(out, overlayHud, indexes);
+                }
+            }
+        } catch (IOException e) {
+            // never thrown by a byte array stream
+            throw new IllegalStateException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes profiles from the binary format.
+     *
+     * @param content The encoded store.
+     * @param version The current version of the store, older versions are upgraded.
+     * @return The decoded profiles, with the active one first.
+     * @throws IOException If the content is malformed or of an unknown version.
+     */
+    public List<LayoutProfile> decode(byte[] content, int version) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+            in.skipBytes(MAGIC.length);
+
+            final int storeVersion = readVarInt(in);
+            if (storeVersion < 1 || storeVersion > version) throw new IOException("Unsupported binary overlay store version " + storeVersion);
+
+            final String[] strings = new String[readVarInt(in)];
+            for (int i = 0; i < strings.length; i++) {
+                final byte[] utf = new byte[readVarInt(in)];
+                in.readFully(utf);
+                strings[i] = new String(utf, StandardCharsets.UTF_8);
+            }
+
+            // version 1 stores only hold the overlays of the default profile
+            if (storeVersion == 1) {
+                return Lists.newArrayList(new LayoutProfile(LayoutProfile.DEFAULT_NAME, this.readOverlays(in, strings), KeystrokesConfig.snapshot()));
+            }
+
+            final int count = readVarInt(in);
+            final List<LayoutProfile> profiles = Lists.newArrayListWithCapacity(count);
+            for (int i = 0; i < count; i++) {
+                final String name = strings[readVarInt(in)];
+                final KeystrokesConfig.Snapshot config = this.readConfig(in);
+                profiles.add(new LayoutProfile(name, this.readOverlays(in, strings), config));
+            }
+
+            return profiles;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Malformed binary overlay store", e);
+        }
+    }
+
+    private void writeConfig(DataOutputStream out, KeystrokesConfig.Snapshot config) throws IOException {
+        int flags = 0;
+        if (config.isShowMovement()) flags |= 1;
+        if (config.isShowMouse()) flags |= 1 << 1;
+        if (config.isShowSpacebar()) flags |= 1 << 2;
+        if (config.isSyncColors()) flags |= 1 << 3;
+        if (config.isRainbow()) flags |= 1 << 4;
+        if (config.isTextShadow()) flags |= 1 << 5;
+
+        out.writeByte(flags);
+        out.writeByte(config.getShowCps().ordinal());
+        out.writeByte(config.getKeyLookType().ordinal());
+    }
+
+    private KeystrokesConfig.Snapshot readConfig(DataInputStream in) throws IOException {
+        final int flags = in.readUnsignedByte();
+        final KeystrokesConfig.CpsType showCps = CPS_TYPES[in.readUnsignedByte()];
+        final KeystrokesConfig.MoveType keyLookType = MOVE_TYPES[in.readUnsignedByte()];
+
+        return new KeystrokesConfig.Snapshot((flags & 1) != 0, (flags & 1 << 1) != 0, showCps, (flags & 1 << 2) != 0,
+                (flags & 1 << 3) != 0, (flags & 1 << 4) != 0, (flags & 1 << 5) != 0, keyLookType);
+    }
+
+    private List<OverlayHud> readOverlays(DataInputStream in, String[] strings) throws IOException {
+        final int count = readVarInt(in);
+        final List<OverlayHud> overlays = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            overlays.add(this.readOverlay(in, strings));
+        }
+        return overlays;
+    }
+
+    private void writeOverlay(DataOutputStream out, OverlayHud overlayHud, Map<String, Integer> indexes) throws IOException {
+        writeVarInt(out, indexes.get(overlayHud.getName()));
+        out.writeBoolean(overlayHud.isCustom());
+
+        final HudPosition position = overlayHud.getHudPosition();
+        writeSignedVarInt(out, position.getX());
+        writeSignedVarInt(out, position.getY());
+        writeSignedVarInt(out, position.getWidth());
+        writeSignedVarInt(out, position.getHeight());
+        writeSignedVarInt(out, overlayHud.getLastX());
+        writeSignedVarInt(out, overlayHud.getLastY());
+        out.writeDouble(overlayHud.getScale());
+
+        writeVarInt(out, overlayHud.getRgbValues().size());
+        for (Map.Entry<ColorTab, int[]> entry : overlayHud.getRgbValues().entrySet()) {
+            out.writeByte(entry.getKey().ordinal());
+            for (int i = 0; i < 3; i++) {
+                out.writeByte(entry.getValue()[i]);
+            }
+        }
+
+        writeVarInt(out, overlayHud.getRowMap().size());
+        for (Map.Entry<OverlayHud.Section, List<Keystroke.Row>> entry : overlayHud.getRowMap().entrySet()) {
+            out.writeByte(entry.getKey().ordinal());
+            writeVarInt(out, entry.getValue().size());
+
+            for (Keystroke.Row row : entry.getValue()) {
+                writeVarInt(out, row.getKeystrokes().size());
+
+                for (Keystroke keystroke : row.getKeystrokes()) {
+                    writeVarInt(out, indexes.get(keystroke.getKeyBindingDescription()));
+                    // the type in the lower bits, whether it's a default keystroke in the highest
+                    out.writeByte(keystroke.getKeyType().ordinal() | (keystroke.isDefault() ? 0x80 : 0));
+                    out.writeDouble(keystroke.getHeight());
+                    out.writeDouble(keystroke.getWidth());
+                    out.writeDouble(keystroke.getTextWidth());
+                }
+            }
+        }
+    }
+
+    private OverlayHud readOverlay(DataInputStream in, String[] strings) throws IOException {
+        final String name = strings[readVarInt(in)];
+        final boolean custom = in.readBoolean();
+
+        final HudPosition position = new HudPosition(readSignedVarInt(in), readSignedVarInt(in), readSignedVarInt(in), readSignedVarInt(in));
+        final int lastX = readSignedVarInt(in), lastY = readSignedVarInt(in);
+        final double scale = in.readDouble();
+
+        final EnumMap<ColorTab, int[]> rgbValues = Maps.newEnumMap(ColorTab.class);
+        for (int i = readVarInt(in); i > 0; i--) {
+            rgbValues.put(COLOR_TABS[in.readUnsignedByte()], new int[]{in.readUnsignedByte(), in.readUnsignedByte(), in.readUnsignedByte()});
+        }
+
+        final EnumMap<OverlayHud.Section, List<Keystroke.Row>> rowMap = Maps.newEnumMap(OverlayHud.Section.class);
+        for (int i = readVarInt(in); i > 0; i--) {
+            final OverlayHud.Section section = SECTIONS[in.readUnsignedByte()];
+            final int rowCount = readVarInt(in);
+            final List<Keystroke.Row> rows = Lists.newArrayListWithCapacity(rowCount);
+
+            for (int j = 0; j < rowCount; j++) {
+                final int keystrokeCount = readVarInt(in);
+                final List<Keystroke> keystrokes = Lists.newArrayListWithCapacity(keystrokeCount);
+
+                for (int k = 0; k < keystrokeCount; k++) {
+                    final String description = strings[readVarInt(in)];
+                    final int type = in.readUnsignedByte();
+                    keystrokes.add(Keystroke.load(description, KEY_TYPES[type & 0x7F], (type & 0x80) != 0,
+                            in.readDouble(), in.readDouble(), in.readDouble()));
+                }
+
+                rows.add(new Keystroke.Row(keystrokes));
+            }
+
+            rowMap.put(section, rows);
+        }
+
+        final OverlayHud overlayHud = new OverlayHud(name, rowMap, position, custom);
+        overlayHud.getRgbValues().putAll(rgbValues);
+        overlayHud.setScale(scale);
+        overlayHud.setLastX(lastX);
+        overlayHud.setLastY(lastY);
+
+        return overlayHud;
+    }
+
+    private static void intern(String string, List<String> strings, Map<String, Integer> indexes) {
+        if (indexes.putIfAbsent(string, strings.size()) == null) strings.add(string);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Writes a variable length integer that may be negative, zig-zag encoded so small negative values stay small.
+     */
+    private static void writeSignedVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    private static int readSignedVarInt(DataInputStream in) throws IOException {
+        final int value = readVarInt(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -2,6 +2,7 @@ package me.arrayofc.keystrokes.hud;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import me.arrayofc.keystrokes.KeystrokesConfig;
 import me.arrayofc.keystrokes.color.ColorTab;
 import me.arrayofc.keystrokes.keystroke.Keystroke;
 
@@ -40,6 +41,15 @@ public class OverlayHud {
     // Whether or not the user created this themselves or it's a default overlay
     private final boolean custom;
 
+    // The compiled layout of this overlay, null until rendered or when invalidated
+    private transient OverlayLayout layout;
+
+    // The colors packed as ARGB values indexed by color tab, null until used or when invalidated
+    private transient int[] packedColors;
+
+    // The offscreen cache of the rendered overlay, null until rendered through it
+    private transient OverlayRenderCache renderCache;
+
     public OverlayHud(String name, EnumMap<OverlayHud.Section, List<Keystroke.Row>> rowMap, HudPosition hudPosition, boolean custom) {
         this.name = name;
         this.rowMap = rowMap;
@@ -56,6 +66,39 @@ public class OverlayHud {
         this.lastY = hudPosition.getY();
 
         this.custom = custom;
+
+        // link the keystrokes to this overlay, whether it was just created or deserialized
+        for (Keystroke keystroke : this.getAllKeystrokes()) {
+            keystroke.setOwningOverlay(this);
+        }
+    }
+
+    /**
+     * Creates a copy of this overlay hud holding the values that are saved,
+     * so it can be encoded on another thread while this one is still being changed.
+     */
+    public OverlayHud copy() {
+        final EnumMap<OverlayHud.Section, List<Keystroke.Row>> rowMap = Maps.newEnumMap(OverlayHud.Section.class);
+        for (Map.Entry<Section, List<Keystroke.Row>> entry : this.rowMap.entrySet()) {
+            final List<Keystroke.Row> rows = Lists.newArrayListWithCapacity(entry.getValue().size());
+            for (Keystroke.Row row : entry.getValue()) {
+                rows.add(row.copy());
+            }
+            rowMap.put(entry.getKey(), rows);
+        }
+
+        final HudPosition position = new HudPosition(this.hudPosition.getX(), this.hudPosition.getY(),
+                this.hudPosition.getWidth(), this.hudPosition.getHeight());
+
+        final OverlayHud copy = new OverlayHud(this.name, rowMap, position, this.custom);
+        for (Map.Entry<ColorTab, int[]> entry : this.rgbValues.entrySet()) {
+            copy.rgbValues.put(entry.getKey(), entry.getValue().clone());
+        }
+        copy.scale = this.scale;
+        copy.lastX = this.lastX;
+        copy.lastY = this.lastY;
+
+        return copy;
     }
 
     /**
@@ -135,6 +178,33 @@ public class OverlayHud {
         return this.rgbValues;
     }
 
+    /**
+     * Returns the color of a tab packed as an ARGB value.
+     *
+     * @param colorTab The tab to get the color for.
+     */
+    public int getPackedColor(ColorTab colorTab) {
+        if (this.packedColors == null) {
+            final int[] packed = new int[ColorTab.values().length];
+
+            for (Map.Entry<ColorTab, int[]> entry : this.rgbValues.entrySet()) {
+                final int[] rgb = entry.getValue();
+                packed[entry.getKey().ordinal()] = 0xFF000000 | (rgb[0] & 0xFF) << 16 | (rgb[1] & 0xFF) << 8 | rgb[2] & 0xFF;
+            }
+
+            this.packedColors = packed;
+        }
+
+        return this.packedColors[colorTab.ordinal()];
+    }
+
+    /**
+     * Discards the packed colors, so they're packed again from the RGB values the next time they're used.
+     */
+    public void invalidateColors() {
+        this.packedColors = null;
+    }
+
     /**
      * Returns the current scaling of this overlay hud.
      */
@@ -149,6 +219,50 @@ public class OverlayHud {
         this.scale = scale;
     }
 
+    /**
+     * Returns the compiled layout of this overlay hud, compiling it if it's missing or outdated.
+     */
+    public OverlayLayout getLayout() {
+        this.prepareLayout(KeystrokesConfig.snapshot());
+        return this.layout;
+    }
+
+    /**
+     * Compiles the layout of this overlay hud ahead of time, for the configuration it's going to be shown with.
+     *
+     * @param config The configuration values to compile the layout for.
+     */
+    public void prepareLayout(KeystrokesConfig.Snapshot config) {
+        if (this.layout == null || !this.layout.isValidFor(this, config)) {
+            this.layout = OverlayLayout.compile(this, config);
+        }
+    }
+
+    /**
+     * Discards the compiled layout so it's rebuilt the next time the overlay is rendered.
+     */
+    public void invalidateLayout() {
+        this.layout = null;
+    }
+
+    /**
+     * Returns the offscreen cache of the rendered overlay, creating it if it's missing.
+     */
+    public OverlayRenderCache getRenderCache() {
+        if (this.renderCache == null) this.renderCache = new OverlayRenderCache();
+        return this.renderCache;
+    }
+
+    /**
+     * Deletes the offscreen cache of the rendered overlay, e.g. when the overlay isn't going to be shown anymore.
+     */
+    public void releaseRenderCache() {
+        if (this.renderCache != null) {
+            this.renderCache.release();
+            this.renderCache = null;
+        }
+    }
+
     /**
      * Returns all the registered keystrokes for this overlay hud.
      */
@@ -0,0 +1,143 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import me.arrayofc.keystrokes.color.ColorTab;
+import me.arrayofc.keystrokes.keystroke.Keystroke;
+import me.arrayofc.keystrokes.keystroke.RowAdapter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes {@link OverlayHud} objects.
+ * <p>
+ * The format is the same as the one previously written by reflection, so existing overlay files can still be read.
+ */
+public class OverlayHudAdapter extends TypeAdapter<OverlayHud> {
+
+    // The adapters for the rows and the location of the overlay
+    private final RowAdapter rowAdapter = new RowAdapter();
+    private final HudPositionAdapter positionAdapter = new HudPositionAdapter();
+
+    @Override
+    public void write(JsonWriter out, OverlayHud hud) throws IOException {
+        out.beginObject();
+        out.name("name").value(hud.getName());
+
+        out.name("rowMap").beginObject();
+        for (Map.Entry<OverlayHud.Section, List<Keystroke.Row>> entry : hud.getRowMap().entrySet()) {
+            out.name(entry.getKey().name()).beginArray();
+            for (Keystroke.Row row : entry.getValue()) {
+                this.rowAdapter.write(out, row);
+            }
+            out.endArray();
+        }
+        out.endObject();
+
+        out.name("rgbValues").beginObject();
+        for (Map.Entry<ColorTab, int[]> entry : hud.getRgbValues().entrySet()) {
+            out.name(entry.getKey().name()).beginArray();
+            for (int value : entry.getValue()) {
+                out.value(value);
+            }
+            out.endArray();
+        }
+        out.endObject();
+
+        out.name("hudPosition");
+        this.positionAdapter.write(out, hud.getHudPosition());
+        out.name("scale").value(hud.getScale());
+        out.name("lastX").value(hud.getLastX());
+        out.name("lastY").value(hud.getLastY());
+        out.name("custom").value(hud.isCustom());
+        out.endObject();
+    }
+
+    @Override
+    public OverlayHud read(JsonReader in) throws IOException {
+        String name = null;
+        final EnumMap<OverlayHud.Section, List<Keystroke.Row>> rowMap = Maps.newEnumMap(OverlayHud.Section.class);
+        final EnumMap<ColorTab, int[]> rgbValues = Maps.newEnumMap(ColorTab.class);
+        HudPosition position = null;
+        double scale = 1;
+        Integer lastX = null, lastY = null;
+        boolean custom = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    name = in.nextString();
+                    break;
+                case "rowMap":
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        final List<Keystroke.Row> rows = Lists.newArrayList();
+                        final OverlayHud.Section section = OverlayHud.Section.valueOf(in.nextName());
+
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            rows.add(this.rowAdapter.read(in));
+                        }
+                        in.endArray();
+
+                        rowMap.put(section, rows);
+                    }
+                    in.endObject();
+                    break;
+                case "rgbValues":
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        final ColorTab colorTab = ColorTab.valueOf(in.nextName());
+                        final int[] values = new int[3];
+
+                        in.beginArray();
+                        for (int i = 0; in.hasNext(); i++) {
+                            final int value = in.nextInt();
+                            if (i < values.length) values[i] = value;
+                        }
+                        in.endArray();
+
+                        rgbValues.put(colorTab, values);
+                    }
+                    in.endObject();
+                    break;
+                case "hudPosition":
+                    position = this.positionAdapter.read(in);
+                    break;
+                case "scale":
+                    scale = in.nextDouble();
+                    break;
+                case "lastX":
+                    lastX = in.nextInt();
+                    break;
+                case "lastY":
+                    lastY = in.nextInt();
+                    break;
+                case "custom":
+                    custom = in.nextBoolean();
+                    break;
+                default:
+                    // e.g. "dragMode", overlays are never loaded while being dragged
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (name == null) throw new IOException("Overlay is missing a name");
+
+        final OverlayHud hud = new OverlayHud(name, rowMap, position == null ? new HudPosition() : position, custom);
+        hud.getRgbValues().putAll(rgbValues);
+        hud.setScale(scale);
+        if (lastX != null) hud.setLastX(lastX);
+        if (lastY != null) hud.setLastY(lastY);
+
+        return hud;
+    }
+}
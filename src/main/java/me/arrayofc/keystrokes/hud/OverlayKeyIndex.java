@@ -0,0 +1,89 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.SetMultimap;
+import me.arrayofc.keystrokes.keystroke.Keystroke;
+import net.minecraft.client.settings.KeyBinding;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A reverse index from keybindings to the keystrokes and overlays of the active profile showing them.
+ * <p>
+ * The keystrokes are indexed by the descriptions of their keybindings, which stay the same when the
+ * controls are rebound, so the index only has to change when overlays are added or removed.
+ */
+public class OverlayKeyIndex {
+
+    // The keystrokes, mapped by the descriptions of their keybindings
+    private final ListMultimap<String, Keystroke> keystrokes = MultimapBuilder.hashKeys().arrayListValues().build();
+
+    // The overlays, mapped by the descriptions of the keybindings they show
+    private final SetMultimap<String, OverlayHud> overlays = LinkedHashMultimap.create();
+
+    /**
+     * Indexes the keystrokes of a list of overlays, replacing everything indexed before.
+     *
+     * @param overlayHuds The overlays to index.
+     */
+    public void rebuild(List<OverlayHud> overlayHuds) {
+        this.keystrokes.clear();
+        this.overlays.clear();
+
+        for (OverlayHud overlayHud : overlayHuds) {
+            this.add(overlayHud);
+        }
+    }
+
+    /**
+     * Adds the keystrokes of an overlay to the index.
+     *
+     * @param overlayHud The overlay to add.
+     */
+    public void add(OverlayHud overlayHud) {
+        for (Keystroke keystroke : overlayHud.getAllKeystrokes()) {
+            final String description = keystroke.getKeyBindingDescription();
+            if (description.equals("BARRIER")) continue;
+
+            this.keystrokes.put(description, keystroke);
+            this.overlays.put(description, overlayHud);
+        }
+    }
+
+    /**
+     * Removes the keystrokes of an overlay from the index.
+     *
+     * @param overlayHud The overlay to remove.
+     */
+    public void remove(OverlayHud overlayHud) {
+        for (Keystroke keystroke : overlayHud.getAllKeystrokes()) {
+            this.keystrokes.remove(keystroke.getKeyBindingDescription(), keystroke);
+            this.overlays.remove(keystroke.getKeyBindingDescription(), overlayHud);
+        }
+    }
+
+    /**
+     * Checks whether or not any overlay shows a keybinding.
+     */
+    public boolean contains(KeyBinding keyBinding) {
+        return this.keystrokes.containsKey(keyBinding.getKeyDescription());
+    }
+
+    /**
+     * Returns the keystrokes showing a keybinding.
+     */
+    public List<Keystroke> getKeystrokes(KeyBinding keyBinding) {
+        return Collections.unmodifiableList(this.keystrokes.get(keyBinding.getKeyDescription()));
+    }
+
+    /**
+     * Returns the overlays with a keystroke showing a keybinding.
+     */
+    public Set<OverlayHud> getOverlays(KeyBinding keyBinding) {
+        return Collections.unmodifiableSet(this.overlays.get(keyBinding.getKeyDescription()));
+    }
+}
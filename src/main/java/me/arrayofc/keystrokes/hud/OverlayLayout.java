@@ -0,0 +1,203 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.common.collect.Lists;
+import me.arrayofc.keystrokes.KeystrokesConfig;
+import me.arrayofc.keystrokes.color.RainbowEngine;
+import me.arrayofc.keystrokes.keystroke.Keystroke;
+import net.minecraft.util.math.vector.Matrix4f;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compiled layout of an {@link OverlayHud}.
+ * <p>
+ * Holds the rectangle of every visible keystroke relative to the overlay position, so that
+ * rendering an overlay is a flat loop instead of walking the sections and rows every frame.
+ * A layout is only rebuilt when the scale, the visible sections or the keystrokes change.
+ */
+public class OverlayLayout {
+
+    // The rectangles of the keystrokes to render, barriers excluded
+    private final Cell[] cells;
+
+    // The total width and height of the overlay
+    private final int width, height;
+
+    // The scale this layout was compiled with
+    private final double scale;
+
+    // The matrix scaling the text to the scale of the overlay
+    private final Matrix4f textScale;
+
+    // The visible sections this layout was compiled with
+    private final boolean showMovement, showMouse, showSpacebar;
+
+    private OverlayLayout(Cell[] cells, int width, int height, double scale, boolean showMovement, boolean showMouse, boolean showSpacebar) {
+        this.cells = cells;
+        this.width = width;
+        this.height = height;
+        this.scale = scale;
+        this.textScale = Matrix4f.makeScale((float) scale, (float) scale, 1);
+        this.showMovement = showMovement;
+        this.showMouse = showMouse;
+        this.showSpacebar = showSpacebar;
+    }
+
+    /**
+     * Compiles the layout of an overlay hud from its current rows and the configuration.
+     *
+     * @param hud    The overlay hud to compile the layout for.
+     * @param config The configuration values to compile the layout for.
+     * @return The compiled layout.
+     */
+    public static OverlayLayout compile(OverlayHud hud, KeystrokesConfig.Snapshot config) {
+        final boolean showMovement = config.isShowMovement();
+        final boolean showMouse = config.isShowMouse();
+        final boolean showSpacebar = config.isShowSpacebar();
+
+        final List<Cell> cells = Lists.newArrayList();
+
+        // with these variables we count the current height and width of the hud
+        int currentHeight = 0, currentWidth = 0;
+        double rowY = 0;
+
+        for (Map.Entry<OverlayHud.Section, List<Keystroke.Row>> rowEntry : hud.getRowMap().entrySet()) {
+            if (!hud.isCustom()) {
+                // skip the hud components that are disabled in the settings
+                if (rowEntry.getKey() == OverlayHud.Section.KEY && !showMovement) continue;
+                if (rowEntry.getKey() == OverlayHud.Section.MOUSE && !showMouse) continue;
+                if (rowEntry.getKey() == OverlayHud.Section.SPACEBAR && !showSpacebar) continue;
+            }
+
+            for (Keystroke.Row row : rowEntry.getValue()) {
+                double rowX = 0;
+                int rowWidth = 0;
+
+                for (Keystroke keystroke : row.getKeystrokes()) {
+                    // barriers only take up space
+                    if (!keystroke.isBarrier()) cells.add(new Cell(keystroke, rowX, rowY, rowX / (RainbowEngine.KEY_UNIT * hud.getScale())));
+
+                    // the x offset for the keystroke next to this
+                    double xOffset = keystroke.getWidth() + (rowEntry.getKey() == OverlayHud.Section.MOUSE ? 2 : 1.5) * hud.getScale();
+
+                    rowX += xOffset;
+                    rowWidth += xOffset;
+                }
+
+                currentWidth = Math.max(currentWidth, rowWidth);
+
+                rowY += row.getRowHeightOffset();
+                currentHeight += row.getRowHeightOffset();
+            }
+        }
+
+        // subtract the last offset from the height
+        return new OverlayLayout(cells.toArray(new Cell[0]), currentWidth, currentHeight - 1 + ((int) hud.getScale()),
+                hud.getScale(), showMovement, showMouse, showSpacebar);
+    }
+
+    /**
+     * Checks whether or not this layout still matches the overlay and the configuration values.
+     */
+    public boolean isValidFor(OverlayHud hud, KeystrokesConfig.Snapshot config) {
+        return this.scale == hud.getScale()
+                && this.showMovement == config.isShowMovement()
+                && this.showMouse == config.isShowMouse()
+                && this.showSpacebar == config.isShowSpacebar();
+    }
+
+    /**
+     * Returns the rectangles of the keystrokes to render.
+     */
+    public Cell[] getCells() {
+        return this.cells;
+    }
+
+    /**
+     * Returns the matrix scaling the text to the scale of the overlay.
+     */
+    public Matrix4f getTextScale() {
+        return this.textScale;
+    }
+
+    /**
+     * Returns the total width of the overlay.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Returns the total height of the overlay.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * The rectangle of a single keystroke in the layout, relative to the overlay position.
+     */
+    public static class Cell {
+        private final Keystroke keystroke;
+        private final float minX, minY, maxX, maxY;
+        private final float labelX, labelY;
+        private final double rainbowOffset;
+
+        private Cell(Keystroke keystroke, double x, double y, double rainbowOffset) {
+            this.keystroke = keystroke;
+            this.minX = (float) x;
+            this.minY = (float) y;
+            this.maxX = (float) (x + keystroke.getWidth());
+            this.maxY = (float) (y + keystroke.getHeight());
+            // the label is anchored in the center of the key
+            this.labelX = (float) (x + keystroke.getWidth() / 2);
+            this.labelY = (float) (y + keystroke.getHeight() / 2);
+            this.rainbowOffset = rainbowOffset;
+        }
+
+        /**
+         * Returns the keystroke in this cell.
+         */
+        public Keystroke getKeystroke() {
+            return this.keystroke;
+        }
+
+        public float getMinX() {
+            return this.minX;
+        }
+
+        public float getMinY() {
+            return this.minY;
+        }
+
+        public float getMaxX() {
+            return this.maxX;
+        }
+
+        public float getMaxY() {
+            return this.maxY;
+        }
+
+        /**
+         * Returns the X position the label of this cell is centered on.
+         */
+        public float getLabelX() {
+            return this.labelX;
+        }
+
+        /**
+         * Returns the Y position the label of this cell is centered on.
+         */
+        public float getLabelY() {
+            return this.labelY;
+        }
+
+        /**
+         * Returns the position of this cell on the rainbow effect, in {@link RainbowEngine#KEY_UNIT key units}.
+         */
+        public double getRainbowOffset() {
+            return this.rainbowOffset;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.systems.RenderSystem;
+import me.arrayofc.keystrokes.Keystrokes;
+import me.arrayofc.keystrokes.KeystrokesConfig;
+import me.arrayofc.keystrokes.color.ColorManager;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.Tessellator;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.client.shader.Framebuffer;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Caches the rendered content of an {@link OverlayHud} in an offscreen {@link Framebuffer}.
+ * <p>
+ * Most frames nothing changes on an overlay, so the cached texture is drawn instead of every quad and glyph.
+ * Only the cells whose pressed state or CPS changed are cleared and rendered again, and everything is
+ * rendered again when the layout, the configuration, the colors or the size of the screen change.
+ */
+public class OverlayRenderCache {
+
+    // The framebuffer holding the rendered overlay, null until the overlay is rendered the first time
+    private Framebuffer framebuffer;
+
+    // The layout, configuration and cache generation the framebuffer was rendered with
+    private OverlayLayout layout;
+    private KeystrokesConfig.Snapshot config;
+    private int generation;
+
+    // The resolved colors the framebuffer was rendered with, as {background, text, click}
+    private final int[] colors = new int[3];
+
+    // The display state of every cell the framebuffer was rendered with, see Keystroke#getDisplayState()
+    private int[] cellStates = new int[0];
+
+    // Whether or not each cell has to be rendered again
+    private boolean[] dirtyCells = new boolean[0];
+
+    // The size of a screen unit in framebuffer pixels
+    private double pixelScale;
+
+    /**
+     * Renders the dirty parts of the overlay into the framebuffer, and draws the framebuffer on the screen.
+     *
+     * @param hud        The overlay this cache belongs to.
+     * @param layout     The current layout of the overlay.
+     * @param batch      The batch to render the dirty cells with, must not be collecting anything else.
+     * @param generation The generation of the caches, everything is rendered again if it has changed.
+     */
+    public void render(OverlayHud hud, OverlayLayout layout, HudBatch batch, int generation) {
+        this.update(hud, layout, batch, generation);
+        this.draw(hud.getHudPosition());
+    }
+
+    /**
+     * Deletes the framebuffer, e.g. after the overlay has been deleted.
+     */
+    public void release() {
+        if (this.framebuffer != null) {
+            this.framebuffer.deleteFramebuffer();
+            this.framebuffer = null;
+        }
+    }
+
+    private void update(OverlayHud hud, OverlayLayout layout, HudBatch batch, int generation) {
+        final ColorManager colorManager = Keystrokes.getInstance().getColorManager();
+        final double pixelScale = Minecraft.getInstance().getMainWindow().getGuiScaleFactor();
+
+        final int width = Math.max(1, (int) Math.ceil(layout.getWidth() * pixelScale));
+        final int height = Math.max(1, (int) Math.ceil(layout.getHeight() * pixelScale));
+
+        final int background = colorManager.getHudBackgroundColor(hud);
+        final int text = colorManager.getHudTextColor(hud, 0);
+        final int click = colorManager.getHudClickColor(hud, 0);
+
+        boolean full = this.layout != layout || this.config != KeystrokesConfig.snapshot() || this.generation != generation
+                || this.pixelScale != pixelScale || this.colors[0] != background || this.colors[1] != text || this.colors[2] != click;
+
+        if (this.framebuffer == null) {
+            this.framebuffer = new Framebuffer(width, height, false, Minecraft.IS_RUNNING_ON_MAC);
+            full = true;
+        } else if (this.framebuffer.framebufferWidth != width || this.framebuffer.framebufferHeight != height) {
+            this.framebuffer.resize(width, height, Minecraft.IS_RUNNING_ON_MAC);
+            full = true;
+        }
+
+        final OverlayLayout.Cell[] cells = layout.getCells();
+        if (this.cellStates.length != cells.length) {
+            this.cellStates = new int[cells.length];
+            this.dirtyCells = new boolean[cells.length];
+            full = true;
+        }
+
+        // find the cells which have changed since they were rendered
+        boolean dirty = full;
+        for (int i = 0; i < cells.length; i++) {
+            final int state = cells[i].getKeystroke().getDisplayState();
+
+            this.dirtyCells[i] = full || state != this.cellStates[i];
+            this.cellStates[i] = state;
+            dirty |= this.dirtyCells[i];
+        }
+        if (!dirty) return;
+
+        this.layout = layout;
+        this.config = KeystrokesConfig.snapshot();
+        this.generation = generation;
+        this.pixelScale = pixelScale;
+        this.colors[0] = background;
+        this.colors[1] = text;
+        this.colors[2] = click;
+
+        if (full) {
+            this.framebuffer.setFramebufferColor(0, 0, 0, 0);
+            this.framebuffer.framebufferClear(Minecraft.IS_RUNNING_ON_MAC);
+        }
+
+        this.framebuffer.bindFramebuffer(true);
+
+        // lay the framebuffer out in screen units, the same as the overlay on the screen
+        RenderSystem.matrixMode(GL11.GL_PROJECTION);
+        RenderSystem.pushMatrix();
+        RenderSystem.loadIdentity();
+        RenderSystem.ortho(0, width / pixelScale, height / pixelScale, 0, 1000, 3000);
+        RenderSystem.matrixMode(GL11.GL_MODELVIEW);
+        RenderSystem.pushMatrix();
+        RenderSystem.loadIdentity();
+        RenderSystem.translatef(0, 0, -2000);
+
+        batch.begin();
+        batch.setOrigin(0, 0, layout.getWidth(), layout.getHeight(), layout.getTextScale());
+
+        for (int i = 0; i < cells.length; i++) {
+            if (!this.dirtyCells[i]) continue;
+
+            final OverlayLayout.Cell cell = cells[i];
+            if (!full) {
+                // clear what was rendered in the cell before
+                final int minX = (int) Math.floor(cell.getMinX() * pixelScale), maxX = (int) Math.ceil(cell.getMaxX() * pixelScale);
+                final int minY = (int) Math.floor(cell.getMinY() * pixelScale), maxY = (int) Math.ceil(cell.getMaxY() * pixelScale);
+
+                RenderSystem.enableScissor(minX, height - maxY, maxX - minX, maxY - minY);
+                RenderSystem.clearColor(0, 0, 0, 0);
+                RenderSystem.clear(GL11.GL_COLOR_BUFFER_BIT, Minecraft.IS_RUNNING_ON_MAC);
+                RenderSystem.disableScissor();
+            }
+
+            cell.getKeystroke().render(hud, cell, batch);
+        }
+
+        batch.flush();
+
+        RenderSystem.popMatrix();
+        RenderSystem.matrixMode(GL11.GL_PROJECTION);
+        RenderSystem.popMatrix();
+        RenderSystem.matrixMode(GL11.GL_MODELVIEW);
+
+        Minecraft.getInstance().getFramebuffer().bindFramebuffer(true);
+    }
+
+    private void draw(HudPosition hudPosition) {
+        final float minX = hudPosition.getX(), minY = hudPosition.getY();
+        final float maxX = minX + (float) (this.framebuffer.framebufferWidth / this.pixelScale);
+        final float maxY = minY + (float) (this.framebuffer.framebufferHeight / this.pixelScale);
+
+        this.framebuffer.bindFramebufferTexture();
+
+        // the framebuffer holds colors multiplied by their alpha values already
+        RenderSystem.enableBlend();
+        RenderSystem.blendFunc(GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA);
+        RenderSystem.color4f(1, 1, 1, 1);
+
+        // the framebuffer texture is upside down
+        final BufferBuilder buffer = Tessellator.getInstance().getBuffer();
+        buffer.begin(GL11.GL_QUADS, DefaultVertexFormats.POSITION_TEX);
+        buffer.pos(minX, maxY, 0).tex(0, 0).endVertex();
+        buffer.pos(maxX, maxY, 0).tex(1, 0).endVertex();
+        buffer.pos(maxX, minY, 0).tex(1, 1).endVertex();
+        buffer.pos(minX, minY, 0).tex(0, 1).endVertex();
+        Tessellator.getInstance().draw();
+
+        this.framebuffer.unbindFramebufferTexture();
+        RenderSystem.defaultBlendFunc();
+        RenderSystem.disableBlend();
+    }
+}
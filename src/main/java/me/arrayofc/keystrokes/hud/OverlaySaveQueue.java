@@ -0,0 +1,225 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.common.collect.Maps;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.toasts.SystemToast;
+import net.minecraft.util.text.StringTextComponent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes and writes overlay files on a background thread, so saving never stalls the render thread.
+ * <p>
+ * Repeated saves of the same file are coalesced, only the latest content is encoded and written.
+ * Other saves, like the one of the configuration file, can be queued the same way.
+ */
+public class OverlaySaveQueue {
+
+    // The logger for this class
+    private static final Logger logger = LogManager.getLogger();
+
+    // The saves waiting to be run, mapped by what they save, e.g. the file to write to
+    private final Map<Object, Runnable> pending = Maps.newHashMap();
+
+    // Held while a save is run, so the writer thread and a flush never write the same file at once
+    private final Object writeLock = new Object();
+
+    // The checksums of the content we wrote to the files, so the changes we made ourselves can be told apart
+    private final Map<Path, Long> written = Maps.newConcurrentMap();
+
+    // The single thread writing the files
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Keystrokes Overlay Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OverlaySaveQueue() {
+        // make sure any pending writes end up on disk when the game closes
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "Keystrokes Overlay Flush"));
+    }
+
+    /**
+     * Queues content to be written to a file.
+     * <p>
+     * The content is encoded on the writer thread, and only if it hasn't been replaced by newer content by then.
+     *
+     * @param path      The file to write to.
+     * @param content   Encodes the content to write, must not read anything changed by the client thread.
+     * @param onWritten Invoked on the writer thread once the file has been written, null for nothing.
+     */
+    public void write(Path path, Supplier<byte[]> content, @Nullable Runnable onWritten) {
+        this.enqueue(path, () -> this.writeContent(path, content, onWritten));
+    }
+
+    /**
+     * Queues a file to be deleted, replacing any pending write to it.
+     *
+     * @param path The file to delete.
+     */
+    public void delete(Path path) {
+        this.enqueue(path, () -> this.deleteContent(path));
+    }
+
+    /**
+     * Queues a save that isn't a plain file write, replacing any pending save with the same key.
+     *
+     * @param key  What the task saves, so repeated saves of it are run only once.
+     * @param task The save to run on the writer thread.
+     */
+    public void save(Object key, Runnable task) {
+        this.enqueue(key, task);
+    }
+
+    /**
+     * Checks whether or not a file was last changed by this queue.
+     * <p>
+     * The content of the file is compared rather than its modification time, which is too coarse on some
+     * file systems to tell apart a change made right after ours.
+     *
+     * @param path The file to check.
+     * @return True if the file holds the content we wrote, false if it was changed by something else.
+     */
+    public boolean isOwnWrite(Path path) {
+        final Long checksum = this.written.get(path);
+        if (checksum == null) return false;
+
+        try {
+            return checksum == checksum(Files.readAllBytes(path));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs all the pending saves on the current thread.
+     */
+    public void flush() {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+
+        // write whatever the executor didn't get to, waiting for the file it might still be writing
+        this.drain();
+    }
+
+    private void enqueue(Object key, Runnable task) {
+        synchronized (this.pending) {
+            // if there already was a save waiting, the task running it hasn't run yet and will run this one instead
+            if (this.pending.put(key, task) != null) return;
+        }
+
+        // the executor has been shut down when the game is closing, so we'll run it right away
+        if (this.executor.isShutdown()) {
+            this.process(key);
+            return;
+        }
+
+        try {
+            this.executor.execute(() -> this.process(key));
+        } catch (RejectedExecutionException e) {
+            this.process(key);
+        }
+    }
+
+    private void drain() {
+        final Object[] keys;
+        synchronized (this.pending) {
+            keys = this.pending.keySet().toArray();
+        }
+
+        for (Object key : keys) {
+            this.process(key);
+        }
+    }
+
+    private void process(Object key) {
+        // the save is taken while holding the lock too, so an older save is never run after a newer one
+        synchronized (this.writeLock) {
+            final Runnable task;
+            synchronized (this.pending) {
+                task = this.pending.remove(key);
+            }
+
+            // already run by someone else
+            if (task == null) return;
+
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Couldn't save " + key, e);
+            }
+        }
+    }
+
+    private void writeContent(Path path, Supplier<byte[]> content, @Nullable Runnable onWritten) {
+        try {
+            final byte[] bytes = content.get();
+
+            // remembered before the file is moved in place, so the watcher never sees it before we know it's ours
+            this.written.put(path, checksum(bytes));
+            this.writeAtomically(path, bytes);
+
+            if (onWritten != null) onWritten.run();
+        } catch (IOException | RuntimeException e) {
+            this.written.remove(path);
+            this.reportFailure(path, e);
+        }
+    }
+
+    private void deleteContent(Path path) {
+        try {
+            Files.deleteIfExists(path);
+            this.written.remove(path);
+        } catch (IOException e) {
+            this.reportFailure(path, e);
+        }
+    }
+
+    private void reportFailure(Path path, Exception e) {
+        logger.error("Couldn't save overlay file " + path, e);
+
+        // alert the user that the overlay wasn't saved
+        Minecraft.getInstance().execute(() -> SystemToast.addOrUpdate(Minecraft.getInstance().getToastGui(), SystemToast.Type.TUTORIAL_HINT,
+                new StringTextComponent("Warning"), new StringTextComponent("Couldn't save overlay.")));
+    }
+
+    /**
+     * Writes the content to a temporary file first and then moves it in place,
+     * so the file is never left half written.
+     */
+    private void writeAtomically(Path path, byte[] content) throws IOException {
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, content);
+
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long checksum(byte[] content) {
+        final CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+
+        // the length is mixed in, so content of a different size never matches
+        return (long) content.length << 32 | crc.getValue();
+    }
+}
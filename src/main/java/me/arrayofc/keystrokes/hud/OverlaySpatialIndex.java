@@ -0,0 +1,277 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A spatial index over the screen rectangles of the overlay HUDs of the active profile.
+ * <p>
+ * The overlays are bucketed into a uniform grid, so finding the overlay at a position only has to look at
+ * the few overlays sharing its cell. Overlapping overlays are resolved by their z-order, which follows the
+ * order of the profile's overlay list, the same order they're rendered in.
+ * <p>
+ * The free space between the overlays is kept as a list of maximal free rectangles, as in the MaxRects
+ * packing algorithm. It's only computed again after an overlay has moved, been resized or removed,
+ * so finding room for a new overlay is a lookup in a short list instead of a scan over the screen.
+ */
+public class OverlaySpatialIndex {
+
+    // The distance kept to the edges of the screen, the same as when the overlays are rendered
+    private static final int MARGIN = 5;
+
+    // The size of the grid cells, in screen units
+    private static final int CELL_SIZE = 32;
+
+    // The indexed entries of the overlays
+    private final Map<OverlayHud, Entry> entries = Maps.newHashMap();
+
+    // The entries overlapping each grid cell, mapped by the packed cell coordinates
+    private final Map<Integer, List<Entry>> cells = Maps.newHashMap();
+
+    // The z-order given to the next overlay added to the index
+    private int nextZ;
+
+    // The maximal free rectangles as {x, y, width, height}, null if they have to be computed again
+    private List<int[]> freeRects;
+
+    // The screen size the free rectangles were computed for
+    private int screenWidth, screenHeight;
+
+    /**
+     * Indexes the bounds of a list of overlays, replacing everything indexed before.
+     *
+     * @param overlays The overlays to index.
+     */
+    public void rebuild(List<OverlayHud> overlays) {
+        this.entries.clear();
+        this.cells.clear();
+        this.nextZ = 0;
+
+        for (OverlayHud overlayHud : overlays) {
+            this.update(overlayHud);
+        }
+        this.freeRects = null;
+    }
+
+    /**
+     * Updates the indexed bounds of an overlay, adding it on top of the others if it isn't indexed yet.
+     * <p>
+     * This is cheap when the bounds haven't changed, so it can be invoked every frame.
+     *
+     * @param overlayHud The overlay to update.
+     */
+    public void update(OverlayHud overlayHud) {
+        final HudPosition position = overlayHud.getHudPosition();
+
+        Entry entry = this.entries.get(overlayHud);
+        if (entry == null) {
+            this.entries.put(overlayHud, entry = new Entry(overlayHud, this.nextZ++));
+        } else if (entry.rect[0] == position.getX() && entry.rect[1] == position.getY()
+                && entry.rect[2] == position.getWidth() && entry.rect[3] == position.getHeight()) {
+            return;
+        } else {
+            this.unlink(entry);
+        }
+
+        entry.rect[0] = position.getX();
+        entry.rect[1] = position.getY();
+        entry.rect[2] = position.getWidth();
+        entry.rect[3] = position.getHeight();
+        this.link(entry);
+
+        this.freeRects = null;
+    }
+
+    /**
+     * Removes an overlay from the index.
+     *
+     * @param overlayHud The overlay to remove.
+     */
+    public void remove(OverlayHud overlayHud) {
+        final Entry entry = this.entries.remove(overlayHud);
+        if (entry == null) return;
+
+        this.unlink(entry);
+        this.freeRects = null;
+    }
+
+    /**
+     * Finds the top-most overlay at a position on the screen.
+     *
+     * @param x X position
+     * @param y Y position
+     * @return The overlay highest in the z-order at the position, null if none.
+     */
+    @Nullable
+    public OverlayHud getOverlayAt(double x, double y) {
+        final List<Entry> bucket = this.cells.get(cellKey(Math.floorDiv((int) Math.floor(x), CELL_SIZE), Math.floorDiv((int) Math.floor(y), CELL_SIZE)));
+        if (bucket == null) return null;
+
+        Entry top = null;
+        for (int i = 0; i < bucket.size(); i++) {
+            final Entry entry = bucket.get(i);
+            if (x >= entry.rect[0] && y >= entry.rect[1] && x < entry.rect[0] + entry.rect[2] && y < entry.rect[1] + entry.rect[3]
+                    && (top == null || entry.z > top.z)) {
+                top = entry;
+            }
+        }
+        return top == null ? null : top.overlayHud;
+    }
+
+    private void link(Entry entry) {
+        if (entry.rect[2] <= 0 || entry.rect[3] <= 0) return;
+
+        for (int cellX = Math.floorDiv(entry.rect[0], CELL_SIZE); cellX <= Math.floorDiv(entry.rect[0] + entry.rect[2] - 1, CELL_SIZE); cellX++) {
+            for (int cellY = Math.floorDiv(entry.rect[1], CELL_SIZE); cellY <= Math.floorDiv(entry.rect[1] + entry.rect[3] - 1, CELL_SIZE); cellY++) {
+                this.cells.computeIfAbsent(cellKey(cellX, cellY), key -> Lists.newArrayListWithCapacity(2)).add(entry);
+            }
+        }
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.rect[2] <= 0 || entry.rect[3] <= 0) return;
+
+        for (int cellX = Math.floorDiv(entry.rect[0], CELL_SIZE); cellX <= Math.floorDiv(entry.rect[0] + entry.rect[2] - 1, CELL_SIZE); cellX++) {
+            for (int cellY = Math.floorDiv(entry.rect[1], CELL_SIZE); cellY <= Math.floorDiv(entry.rect[1] + entry.rect[3] - 1, CELL_SIZE); cellY++) {
+                final Integer key = cellKey(cellX, cellY);
+                final List<Entry> bucket = this.cells.get(key);
+                if (bucket == null) continue;
+
+                bucket.remove(entry);
+                if (bucket.isEmpty()) this.cells.remove(key);
+            }
+        }
+    }
+
+    private static Integer cellKey(int cellX, int cellY) {
+        return (cellX & 0xFFFF) << 16 | cellY & 0xFFFF;
+    }
+
+    /**
+     * Finds the free slot fitting a rectangle the best, i.e. with the shortest leftover side.
+     * <p>
+     * Slots equally good are resolved by the one closest to the preferred position.
+     *
+     * @param from         The preferred position and the size of the rectangle.
+     * @param screenWidth  The width of the screen.
+     * @param screenHeight The height of the screen.
+     * @return The position for the rectangle, null if it doesn't fit anywhere.
+     */
+    @Nullable
+    public HudPosition findFreeSlot(HudPosition from, int screenWidth, int screenHeight) {
+        if (this.freeRects == null || this.screenWidth != screenWidth || this.screenHeight != screenHeight) {
+            this.computeFreeRects(screenWidth, screenHeight);
+        }
+
+        final int width = Math.max(1, from.getWidth()), height = Math.max(1, from.getHeight());
+
+        int[] best = null;
+        int bestShortSide = Integer.MAX_VALUE, bestDistance = Integer.MAX_VALUE;
+        for (int[] rect : this.freeRects) {
+            if (rect[2] < width || rect[3] < height) continue;
+
+            final int shortSide = Math.min(rect[2] - width, rect[3] - height);
+            final int distance = Math.abs(rect[0] - from.getX()) + Math.abs(rect[1] - from.getY());
+            if (shortSide < bestShortSide || shortSide == bestShortSide && distance < bestDistance) {
+                best = rect;
+                bestShortSide = shortSide;
+                bestDistance = distance;
+            }
+        }
+
+        return best == null ? null : new HudPosition(best[0], best[1], from.getWidth(), from.getHeight());
+    }
+
+    private void computeFreeRects(int screenWidth, int screenHeight) {
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+
+        List<int[]> free = Lists.newArrayList();
+        if (screenWidth > MARGIN * 2 && screenHeight > MARGIN * 2) {
+            free.add(new int[]{MARGIN, MARGIN, screenWidth - MARGIN * 2, screenHeight - MARGIN * 2});
+        }
+
+        for (Entry entry : this.entries.values()) {
+            final int[] used = entry.rect;
+            if (used[2] <= 0 || used[3] <= 0) continue;
+
+            final List<int[]> split = Lists.newArrayListWithCapacity(free.size() + 4);
+            for (int[] rect : free) {
+                if (!intersects(rect, used)) {
+                    split.add(rect);
+                    continue;
+                }
+
+                // replace the rectangle with the maximal rectangles left on each side of the overlay
+                if (used[0] > rect[0]) {
+                    split.add(new int[]{rect[0], rect[1], used[0] - rect[0], rect[3]});
+                }
+                if (used[0] + used[2] < rect[0] + rect[2]) {
+                    split.add(new int[]{used[0] + used[2], rect[1], rect[0] + rect[2] - used[0] - used[2], rect[3]});
+                }
+                if (used[1] > rect[1]) {
+                    split.add(new int[]{rect[0], rect[1], rect[2], used[1] - rect[1]});
+                }
+                if (used[1] + used[3] < rect[1] + rect[3]) {
+                    split.add(new int[]{rect[0], used[1] + used[3], rect[2], rect[1] + rect[3] - used[1] - used[3]});
+                }
+            }
+
+            free = prune(split);
+        }
+
+        this.freeRects = free;
+    }
+
+    /**
+     * Removes the free rectangles contained in another one, they'd never be a better fit.
+     */
+    private static List<int[]> prune(List<int[]> rects) {
+        final List<int[]> pruned = Lists.newArrayListWithCapacity(rects.size());
+
+        outer:
+        for (int i = 0; i < rects.size(); i++) {
+            for (int j = 0; j < rects.size(); j++) {
+                // of two equal rectangles, only the first one is kept
+                if (i != j && contains(rects.get(j), rects.get(i)) && (j < i || !contains(rects.get(i), rects.get(j)))) {
+                    continue outer;
+                }
+            }
+            pruned.add(rects.get(i));
+        }
+
+        return pruned;
+    }
+
+    private static boolean intersects(int[] a, int[] b) {
+        return a[0] < b[0] + b[2] && b[0] < a[0] + a[2] && a[1] < b[1] + b[3] && b[1] < a[1] + a[3];
+    }
+
+    private static boolean contains(int[] outer, int[] inner) {
+        return inner[0] >= outer[0] && inner[1] >= outer[1]
+                && inner[0] + inner[2] <= outer[0] + outer[2] && inner[1] + inner[3] <= outer[1] + outer[3];
+    }
+
+    /**
+     * An overlay in the index, with its bounds and place in the z-order.
+     */
+    private static class Entry {
+
+        private final OverlayHud overlayHud;
+
+        // The z-order of the overlay, the highest one is on top
+        private final int z;
+
+        // The bounds of the overlay, as {x, y, width, height}
+        private final int[] rect = new int[4];
+
+        private Entry(OverlayHud overlayHud, int z) {
+            this.overlayHud = overlayHud;
+            this.z = z;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import me.arrayofc.keystrokes.Keystrokes;
+import me.arrayofc.keystrokes.KeystrokesConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reads and writes the overlay store, the single file holding every {@link LayoutProfile} and their overlay HUDs.
+ * <p>
+ * The store carries a version, and stores written by older versions of the mod are upgraded
+ * through the migrations when they're loaded, so updating the mod never loses any overlays.
+ * <p>
+ * Overlay files dropped into the drop-in directory are imported into the store, which is also
+ * how the overlays saved in a file each by older versions of the mod end up in the store.
+ */
+public class OverlayStore {
+
+    // The logger for this class
+    private static final Logger logger = LogManager.getLogger();
+
+    // The current version of the store format
+    public static final int VERSION = 2;
+
+    // The migrations upgrading the store, the migration at index N upgrades a store from version N to N + 1
+    private static final List<UnaryOperator<JsonObject>> MIGRATIONS = Lists.newArrayList();
+
+    static {
+        // 0 -> 1: overlays used to be saved in a file each, along with whether they were being dragged
+        MIGRATIONS.add(root -> {
+            for (JsonElement overlay : root.getAsJsonArray("overlays")) {
+                overlay.getAsJsonObject().remove("dragMode");
+            }
+            return root;
+        });
+
+        // 1 -> 2: the overlays are kept in layout profiles
+        MIGRATIONS.add(root -> {
+            final JsonObject profile = new JsonObject();
+            profile.addProperty("name", LayoutProfile.DEFAULT_NAME);
+            profile.add("overlays", root.remove("overlays"));
+
+            final JsonArray profiles = new JsonArray();
+            profiles.add(profile);
+            root.add("profiles", profiles);
+
+            return root;
+        });
+    }
+
+    // The store files of the JSON and the binary format
+    private final Path jsonFile, binaryFile;
+
+    // The directory overlay files can be dropped into, and where the files are moved to once imported
+    private final Path dropInDirectory, importedDirectory;
+
+    // The codec of the binary format
+    private final OverlayBinaryCodec binaryCodec = new OverlayBinaryCodec();
+
+    // Whether or not the loaded overlays differ from the store on disk, cleared by the writer thread
+    private volatile boolean outdated = false;
+
+    public OverlayStore(Path configDirectory) {
+        this.jsonFile = configDirectory.resolve("keystroke-overlays.json");
+        this.binaryFile = configDirectory.resolve("keystroke-overlays.dat");
+        this.dropInDirectory = configDirectory.resolve("keystroke-overlays");
+        this.importedDirectory = this.dropInDirectory.resolve("imported");
+    }
+
+    /**
+     * Returns the store file of the configured {@link KeystrokesConfig.StorageFormat}.
+     */
+    public Path getFile() {
+        return isBinary() ? this.binaryFile : this.jsonFile;
+    }
+
+    /**
+     * Returns the store file of the format that isn't configured, which is removed once the store has been saved.
+     */
+    public Path getStaleFile() {
+        return isBinary() ? this.jsonFile : this.binaryFile;
+    }
+
+    /**
+     * Returns the directory overlay files can be dropped into.
+     */
+    public Path getDropInDirectory() {
+        return this.dropInDirectory;
+    }
+
+    /**
+     * Returns whether or not the loaded overlays differ from the store on disk, because the store had to be
+     * upgraded or overlays were imported, in which case it should be saved again.
+     */
+    public boolean isOutdated() {
+        return this.outdated;
+    }
+
+    /**
+     * Marks the store on disk as up to date, invoked once the loaded overlays have been written to it.
+     */
+    public void markSaved() {
+        this.outdated = false;
+    }
+
+    /**
+     * Loads all the profiles in the store.
+     *
+     * @param executor The executor to parse the overlays on concurrently.
+     * @return The loaded profiles with the active one first, empty if nothing has been saved yet.
+     * @throws IOException If the store couldn't be read or parsed.
+     */
+    public List<LayoutProfile> load(Executor executor) throws IOException {
+        final long start = System.nanoTime();
+
+        Path file = this.getFile();
+        if (Files.notExists(file)) {
+            file = this.getStaleFile();
+            if (Files.notExists(file)) return Lists.newArrayList();
+
+            // the storage format was changed, so the store has to be saved in the new format
+            this.outdated = true;
+        }
+
+        final List<LayoutProfile> profiles = this.read(file, executor);
+        logger.info("Loaded {} profiles from {} in {} ms", profiles.size(), file.getFileName(), (System.nanoTime() - start) / 1_000_000.0);
+
+        return profiles;
+    }
+
+    /**
+     * Reads the profiles of a store file in any format.
+     *
+     * @param file     The file to read.
+     * @param executor The executor to parse the overlays of an outdated store on concurrently.
+     * @return The profiles in the file, with the active one first.
+     * @throws IOException If the file couldn't be read or parsed.
+     */
+    public List<LayoutProfile> read(Path file, Executor executor) throws IOException {
+        final byte[] content = Files.readAllBytes(file);
+        if (OverlayBinaryCodec.isBinary(content)) return this.binaryCodec.decode(content, VERSION);
+
+        final String json = new String(content, StandardCharsets.UTF_8);
+        try {
+            // an up to date store is deserialized in a single streaming pass
+            final List<LayoutProfile> profiles = this.readCurrent(json);
+            if (profiles != null) return profiles;
+
+            final List<LayoutProfile> upgraded = this.migrate(new JsonParser().parse(json).getAsJsonObject(), executor);
+            this.outdated = true;
+            logger.info("Upgraded overlay store to version " + VERSION);
+
+            return upgraded;
+        } catch (JsonParseException | IllegalStateException | NumberFormatException | CompletionException e) {
+            throw new IOException("Malformed overlay store " + file, e);
+        }
+    }
+
+    /**
+     * Serializes profiles into the content of a store file, in the {@link KeystrokesConfig.StorageFormat} of that file.
+     * <p>
+     * The file is passed in rather than looked up, since the configured format may change before the content is encoded.
+     *
+     * @param profiles The profiles to store, with the active one first.
+     * @param file     The store file the content is going to be written to, as returned by {@link #getFile()}.
+     * @return The encoded content.
+     */
+    public byte[] encode(List<LayoutProfile> profiles, Path file) {
+        final long start = System.nanoTime();
+        final boolean binary = file.equals(this.binaryFile);
+        final byte[] content = binary ? this.binaryCodec.encode(profiles, VERSION) : this.encodeJson(profiles);
+
+        logger.debug("Encoded {} profiles as {} ({} bytes) in {} ms", profiles.size(), binary ? "binary" : "JSON",
+                content.length, (System.nanoTime() - start) / 1_000_000.0);
+
+        return content;
+    }
+
+    /**
+     * Serializes profiles into a JSON store.
+     *
+     * @param profiles The profiles to store, with the active one first.
+     * @return The UTF-8 encoded content.
+     */
+    public byte[] encodeJson(List<LayoutProfile> profiles) {
+        final StringWriter writer = new StringWriter();
+
+        try (JsonWriter out = Keystrokes.GSON.newJsonWriter(writer)) {
+            out.beginObject();
+            out.name("version").value(VERSION);
+
+            out.name("profiles").beginArray();
+            for (LayoutProfile profile : profiles) {
+                out.beginObject();
+                out.name("name").value(profile.getName());
+                out.name("config");
+                Keystrokes.GSON.toJson(profile.getConfig(), KeystrokesConfig.Snapshot.class, out);
+
+                out.name("overlays").beginArray();
+                for (OverlayHud overlayHud : profile.getOverlayHuds()) {
+                    Keystrokes.GSON.toJson(overlayHud, OverlayHud.class, out);
+                }
+                out.endArray();
+                out.endObject();
+            }
+            out.endArray();
+
+            out.endObject();
+        } catch (IOException e) {
+            // never thrown by a string writer
+            throw new IllegalStateException(e);
+        }
+
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Moves an unreadable store out of the way, so it can be recovered by hand instead of being overwritten.
+     */
+    public void backup() {
+        for (Path file : new Path[]{this.jsonFile, this.binaryFile}) {
+            if (Files.notExists(file)) continue;
+
+            try {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".broken"), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                logger.error("Couldn't back up overlay store " + file, e);
+            }
+        }
+    }
+
+    private static boolean isBinary() {
+        return KeystrokesConfig.STORAGE_FORMAT.get() == KeystrokesConfig.StorageFormat.BINARY;
+    }
+
+    /**
+     * Reads a store that's already on the current version.
+     *
+     * @return The profiles, null if the store has to be migrated first.
+     */
+    private List<LayoutProfile> readCurrent(String content) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(content))) {
+            reader.beginObject();
+
+            // the version is always written first, if it's not there this store wasn't written by us
+            if (!reader.hasNext() || !reader.nextName().equals("version") || reader.nextInt() != VERSION) return null;
+
+            final List<LayoutProfile> profiles = Lists.newArrayList();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("profiles")) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    profiles.add(this.readProfile(reader));
+                }
+                reader.endArray();
+            }
+
+            reader.endObject();
+            return profiles;
+        }
+    }
+
+    private LayoutProfile readProfile(JsonReader reader) throws IOException {
+        String name = LayoutProfile.DEFAULT_NAME;
+        KeystrokesConfig.Snapshot config = KeystrokesConfig.snapshot();
+        final List<OverlayHud> overlays = Lists.newArrayList();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "config":
+                    config = Keystrokes.GSON.fromJson(reader, KeystrokesConfig.Snapshot.class);
+                    break;
+                case "overlays":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        overlays.add(Keystrokes.GSON.fromJson(reader, OverlayHud.class));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new LayoutProfile(name, overlays, config);
+    }
+
+    /**
+     * Upgrades a store to the current version and deserializes it.
+     */
+    private List<LayoutProfile> migrate(JsonObject root, Executor executor) throws IOException {
+        int version = root.has("version") ? root.get("version").getAsInt() : 0;
+        if (version > VERSION) throw new IOException("Overlay store was written by a newer version (" + version + ")");
+
+        if (version < 2 && !root.has("overlays")) root.add("overlays", new JsonArray());
+
+        for (; version < VERSION; version++) {
+            root = MIGRATIONS.get(version).apply(root);
+        }
+
+        if (!root.has("profiles")) root.add("profiles", new JsonArray());
+
+        final List<LayoutProfile> profiles = Lists.newArrayList();
+        for (JsonElement element : root.getAsJsonArray("profiles")) {
+            final JsonObject profile = element.getAsJsonObject();
+
+            // the overlays are independent of each other, so they're deserialized concurrently
+            final List<CompletableFuture<OverlayHud>> futures = Lists.newArrayList();
+            if (profile.has("overlays")) {
+                for (JsonElement overlay : profile.getAsJsonArray("overlays")) {
+                    futures.add(CompletableFuture.supplyAsync(() -> Keystrokes.GSON.fromJson(overlay, OverlayHud.class), executor));
+                }
+            }
+
+            final List<OverlayHud> overlays = Lists.newArrayListWithCapacity(futures.size());
+            for (CompletableFuture<OverlayHud> future : futures) {
+                overlays.add(future.join());
+            }
+
+            profiles.add(new LayoutProfile(profile.has("name") ? profile.get("name").getAsString() : LayoutProfile.DEFAULT_NAME, overlays,
+                    profile.has("config") ? Keystrokes.GSON.fromJson(profile.get("config"), KeystrokesConfig.Snapshot.class) : KeystrokesConfig.snapshot()));
+        }
+
+        return profiles;
+    }
+
+    /**
+     * Imports all the overlay files in the drop-in directory.
+     *
+     * @param executor The executor to parse the files on concurrently.
+     * @return The imported overlays.
+     */
+    public List<OverlayHud> importDropIns(Executor executor) {
+        final File[] files = this.dropInDirectory.toFile().listFiles();
+        if (files == null) return Lists.newArrayList();
+
+        final List<CompletableFuture<List<OverlayHud>>> futures = Lists.newArrayList();
+        for (File file : files) {
+            // skip anything that isn't an overlay, like temporary files from an interrupted save
+            if (!file.getName().endsWith(".json")) continue;
+
+            futures.add(CompletableFuture.supplyAsync(() -> this.importDropIn(file.toPath()), executor));
+        }
+
+        final List<OverlayHud> overlays = Lists.newArrayList();
+        for (CompletableFuture<List<OverlayHud>> future : futures) {
+            overlays.addAll(future.join());
+        }
+
+        if (!overlays.isEmpty()) {
+            this.outdated = true;
+            logger.info("Imported {} overlays from {}", overlays.size(), this.dropInDirectory);
+        }
+
+        return overlays;
+    }
+
+    /**
+     * Imports a single overlay file from the drop-in directory, and moves it to the imported directory.
+     * <p>
+     * A file which can't be parsed is left alone, it might still be being written.
+     *
+     * @param file The file holding a single overlay, as saved by older versions of the mod, or a whole JSON store.
+     * @return The overlays in the file, those of the active profile for a store, empty if it couldn't be read or parsed.
+     */
+    public List<OverlayHud> importDropIn(Path file) {
+        final List<OverlayHud> overlays;
+        try {
+            JsonObject root = new JsonParser().parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).getAsJsonObject();
+
+            // a store always has a version, a single overlay doesn't
+            if (!root.has("version")) {
+                final JsonArray array = new JsonArray();
+                array.add(root);
+
+                root = new JsonObject();
+                root.addProperty("version", 0);
+                root.add("overlays", array);
+            }
+
+            final List<LayoutProfile> profiles = this.migrate(root, Runnable::run);
+            overlays = profiles.isEmpty() ? Collections.emptyList() : profiles.get(0).getOverlayHuds();
+        } catch (IOException | JsonParseException | IllegalStateException | NumberFormatException | CompletionException e) {
+            logger.error("Skipping malformed overlay file " + file, e);
+            return Collections.emptyList();
+        }
+
+        try {
+            Files.createDirectories(this.importedDirectory);
+            Files.move(file, this.importedDirectory.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.error("Couldn't move imported overlay file " + file, e);
+        }
+
+        return overlays;
+    }
+}
@@ -0,0 +1,131 @@
+package me.arrayofc.keystrokes.hud;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import net.minecraft.client.Minecraft;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the overlay store and the drop-in directory for changes made outside of the game.
+ * <p>
+ * Changed files are parsed on the watcher thread, and the overlays are applied on the client thread.
+ * Bursts of events are collected until the files have been left alone for a moment, and the files
+ * written by the {@link OverlaySaveQueue} are ignored.
+ */
+public class OverlayWatcher implements Runnable {
+
+    // The logger for this class
+    private static final Logger logger = LogManager.getLogger();
+
+    // How long the files have to be left alone before the changes are applied
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    // The overlay manager to apply the changes to
+    private final HudManager hudManager;
+
+    // The store & the queue writing it
+    private final OverlayStore store;
+    private final OverlaySaveQueue saveQueue;
+
+    // The watch service, null until started
+    private WatchService watchService;
+
+    public OverlayWatcher(HudManager hudManager, OverlayStore store, OverlaySaveQueue saveQueue) {
+        this.hudManager = hudManager;
+        this.store = store;
+        this.saveQueue = saveQueue;
+    }
+
+    /**
+     * Starts watching the overlay files on a background thread.
+     */
+    public void start() {
+        try {
+            Files.createDirectories(this.store.getDropInDirectory());
+
+            this.watchService = FileSystems.getDefault().newWatchService();
+            this.store.getFile().getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            this.store.getDropInDirectory().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.error("Couldn't watch the overlay files for changes", e);
+            return;
+        }
+
+        Thread thread = new Thread(this, "Keystrokes Overlay Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        final Set<Path> changed = Sets.newLinkedHashSet();
+
+        while (true) {
+            final WatchKey key;
+            try {
+                // wait for something to change, and then keep collecting until the burst is over
+                key = changed.isEmpty() ? this.watchService.take() : this.watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            if (key == null) {
+                this.apply(changed);
+                changed.clear();
+                continue;
+            }
+
+            final Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                changed.add(directory.resolve((Path) event.context()));
+            }
+            key.reset();
+        }
+    }
+
+    private void apply(Set<Path> changed) {
+        boolean storeChanged = false;
+        final List<OverlayHud> dropIns = Lists.newArrayList();
+
+        for (Path path : changed) {
+            if (this.saveQueue.isOwnWrite(path)) continue;
+
+            if (path.equals(this.store.getFile())) {
+                storeChanged = true;
+            } else if (this.store.getDropInDirectory().equals(path.getParent()) && path.getFileName().toString().endsWith(".json") && Files.isRegularFile(path)) {
+                // only the changed files are parsed
+                dropIns.addAll(this.store.importDropIn(path));
+            }
+        }
+
+        if (storeChanged) {
+            try {
+                final List<LayoutProfile> profiles = this.store.read(this.store.getFile(), Runnable::run);
+                Minecraft.getInstance().execute(() -> this.hudManager.replaceProfiles(profiles, false));
+                logger.info("Reloaded {} profiles from {}", profiles.size(), this.store.getFile().getFileName());
+            } catch (IOException e) {
+                logger.error("Couldn't reload the changed overlay store", e);
+            }
+        }
+
+        if (!dropIns.isEmpty()) {
+            Minecraft.getInstance().execute(() -> this.hudManager.mergeOverlays(dropIns));
+            logger.info("Imported {} dropped overlays", dropIns.size());
+        }
+    }
+}
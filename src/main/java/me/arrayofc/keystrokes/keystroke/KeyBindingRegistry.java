@@ -0,0 +1,131 @@
+package me.arrayofc.keystrokes.keystroke;
+
+import com.google.common.collect.Maps;
+import me.arrayofc.keystrokes.Keystrokes;
+import me.arrayofc.keystrokes.hud.LayoutProfile;
+import me.arrayofc.keystrokes.hud.OverlayHud;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.settings.KeyBinding;
+import net.minecraft.client.util.InputMappings;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Resolves {@link KeyBinding} objects from their descriptions.
+ * <p>
+ * The keybindings are indexed once, and the index is only rebuilt after the controls might have changed,
+ * so keystrokes never have to scan through all the keybindings while rendering.
+ */
+public class KeyBindingRegistry {
+
+    // Main class instance
+    private final Keystrokes keystrokes;
+
+    // The keybindings of the game settings, read again whenever they're indexed
+    private final Supplier<KeyBinding[]> source;
+
+    // The indexes of the keybindings in the game settings, mapped by their descriptions
+    private final Map<String, Integer> indexes = Maps.newHashMap();
+
+    // The keybindings of the game settings, mapped by the key or button they're bound to
+    private final Map<InputMappings.Input, KeyBinding> byInput = Maps.newHashMap();
+
+    // The keybindings of the game settings at the time they were indexed
+    private KeyBinding[] keyBindings = new KeyBinding[0];
+
+    // Whether or not the keybindings have been indexed since the last invalidation
+    private boolean indexed = false;
+
+    // Incremented on every invalidation, keystrokes compare this to know when their cached keybinding is outdated
+    private int generation = 1;
+
+    public KeyBindingRegistry(Keystrokes keystrokes) {
+        this(keystrokes, () -> Minecraft.getInstance().gameSettings.keyBindings);
+    }
+
+    public KeyBindingRegistry(Keystrokes keystrokes, Supplier<KeyBinding[]> source) {
+        this.keystrokes = keystrokes;
+        this.source = source;
+    }
+
+    /**
+     * Returns the keybinding with the given description.
+     *
+     * @param description The description of the keybinding, e.g. "key.forward".
+     * @return The keybinding, null if no keybinding has this description.
+     */
+    @Nullable
+    public KeyBinding get(String description) {
+        final int index = this.indexOf(description);
+        return index == -1 ? null : this.keyBindings[index];
+    }
+
+    /**
+     * Returns the index of the keybinding with the given description in the game settings.
+     * <p>
+     * This is the index the keybinding is sampled at in the {@link me.arrayofc.keystrokes.util.InputSnapshot}.
+     *
+     * @param description The description of the keybinding, e.g. "key.forward".
+     * @return The index of the keybinding, -1 if no keybinding has this description.
+     */
+    public int indexOf(String description) {
+        if (!this.indexed) this.index();
+        return this.indexes.getOrDefault(description, -1);
+    }
+
+    /**
+     * Returns the keybinding bound to a key or mouse button.
+     *
+     * @param input The key or mouse button.
+     * @return The keybinding, null if nothing is bound to the input.
+     */
+    @Nullable
+    public KeyBinding getBoundTo(InputMappings.Input input) {
+        if (!this.indexed) this.index();
+        return this.byInput.get(input);
+    }
+
+    /**
+     * Returns the current generation of the index.
+     */
+    public int getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Invalidates the index, so it's rebuilt the next time a keybinding is resolved.
+     * <p>
+     * Invoked when the controls may have been rebound.
+     */
+    public void invalidate() {
+        this.indexed = false;
+        this.generation++;
+
+        // the names of the keys on the labels might have changed as well
+        this.keystrokes.getLabelCache().invalidate();
+
+        // keys which lost their keybinding turn into barriers, so the layouts of every profile need to be compiled again
+        for (LayoutProfile profile : this.keystrokes.getHudManager().getProfiles()) {
+            for (OverlayHud overlayHud : profile.getOverlayHuds()) {
+                overlayHud.invalidateLayout();
+            }
+        }
+        this.keystrokes.getHudManager().prepareLayouts();
+    }
+
+    private void index() {
+        this.indexes.clear();
+        this.byInput.clear();
+        this.keyBindings = this.source.get();
+
+        for (int i = 0; i < this.keyBindings.length; i++) {
+            // keep the first keybinding if any descriptions would collide
+            this.indexes.putIfAbsent(this.keyBindings[i].getKeyDescription(), i);
+            this.byInput.putIfAbsent(this.keyBindings[i].getKey(), this.keyBindings[i]);
+        }
+
+        this.indexed = true;
+    }
+}
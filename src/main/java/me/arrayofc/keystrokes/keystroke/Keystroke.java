@@ -1,44 +1,36 @@
 package me.arrayofc.keystrokes.keystroke;
 
-import com.google.common.collect.Maps;
-import com.mojang.blaze3d.matrix.MatrixStack;
-import com.mojang.blaze3d.platform.GlStateManager;
-import me.arrayofc.keystrokes.Keystrokes;
+import com.google.common.collect.Lists;
 import me.arrayofc.keystrokes.KeystrokesConfig;
 import me.arrayofc.keystrokes.color.ColorManager;
-import me.arrayofc.keystrokes.color.ColorTab;
-import me.arrayofc.keystrokes.gui.MainConfigScreen;
+import me.arrayofc.keystrokes.color.RainbowEngine;
+import me.arrayofc.keystrokes.hud.HudBatch;
 import me.arrayofc.keystrokes.hud.OverlayHud;
-import me.arrayofc.keystrokes.util.MouseHandler;
-import me.arrayofc.keystrokes.util.Strings;
-import me.arrayofc.keystrokes.util.Translations;
-import net.minecraft.client.Minecraft;
-import net.minecraft.client.gui.FontRenderer;
+import me.arrayofc.keystrokes.hud.OverlayLayout;
+import me.arrayofc.keystrokes.util.InputSnapshot;
+import me.arrayofc.keystrokes.util.TextMetrics;
 import net.minecraft.client.settings.KeyBinding;
-import org.apache.commons.lang3.tuple.Pair;
-import org.lwjgl.opengl.GL11;
 
 import javax.annotation.Nullable;
-import java.awt.*;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 @SuppressWarnings("deprecation")
 public class Keystroke {
 
-    // The default scales for the default overlay HUD
-    public static final Map<KeyType, Pair<Double, Double>> DEFAULT_KEY_SCALE = Maps.newHashMap();
-
     // The color manager class handling the colors to display
-    private final static ColorManager colorManager = Keystrokes.getInstance().getColorManager();
+    private static ColorManager colorManager;
 
-    static {
-        DEFAULT_KEY_SCALE.put(KeyType.MOUSE_LEFT, Pair.of(27d, 38d));
-        DEFAULT_KEY_SCALE.put(KeyType.MOUSE_RIGHT, Pair.of(27d, 38d));
-        DEFAULT_KEY_SCALE.put(KeyType.SPACEBAR, Pair.of(15d, 78d));
-        DEFAULT_KEY_SCALE.put(KeyType.KEY, Pair.of(25d, 25d));
-    }
+    // The registry resolving the keybindings of the keystrokes
+    private static KeyBindingRegistry keyBindingRegistry;
+
+    // The input state of the current frame
+    private static InputSnapshot inputSnapshot;
+
+    // The cache of the labels to display
+    private static LabelCache labelCache;
+
+    // The cache of the measured label widths
+    private static TextMetrics textMetrics;
 
     // The keybinding of this keystroke object
     private final String keyBindingDescription;
@@ -55,26 +47,77 @@ public class Keystroke {
     // Whether or not this keystroke is apart of a default overlay HUD
     private final boolean isDefault;
 
-    // The overlay that this keystroke belongs to
+    // The name of the overlay that this keystroke belongs to, as it was saved
     private String owningOverlay;
 
+    // The overlay that this keystroke belongs to, null until the keystroke is added to one
+    private transient OverlayHud owner;
+
+    // The resolved keybinding & its index, and the registry generation it was resolved in
+    private transient KeyBinding keyBinding;
+    private transient int keyBindingIndex;
+    private transient int keyBindingGeneration;
+
     private Keystroke(KeyBinding keyBinding, KeyType type, boolean isDefault) {
         this.keyBindingDescription = keyBinding == null ? "BARRIER" : keyBinding.getKeyDescription();
         this.keyType = type;
-        this.height = DEFAULT_KEY_SCALE.get(this.keyType).getLeft();
+        this.height = this.keyType.getDefaultHeight();
 
         this.isDefault = isDefault;
 
         if (this.isDefault || this.getTextContent().length() <= 3) {
-            this.width = DEFAULT_KEY_SCALE.get(this.keyType).getRight();
+            this.width = this.keyType.getDefaultWidth();
 
         } else {
             // if it's not a default key (WASD), the text for this keystroke could be much longer, e.g. "Left Shift".
-            this.textWidth = Minecraft.getInstance().fontRenderer.getStringWidth(this.getTextContent());
+            this.textWidth = textMetrics.getWidth(this.getTextContent());
             this.width = this.textWidth + 5;
         }
     }
 
+    private Keystroke(String keyBindingDescription, KeyType type, boolean isDefault, double height, double width, double textWidth) {
+        this.keyBindingDescription = keyBindingDescription;
+        this.keyType = type;
+        this.isDefault = isDefault;
+
+        // the size was measured when the keystroke was created, so there's no need to measure the text again
+        this.height = height;
+        this.width = width;
+        this.textWidth = textWidth;
+    }
+
+    /**
+     * Sets what the keystrokes are measured and rendered with.
+     * <p>
+     * Invoked by the main class before any keystroke is created, or by a test rendering keystrokes without the game.
+     */
+    public static void install(ColorManager colorManager, KeyBindingRegistry keyBindingRegistry, InputSnapshot inputSnapshot,
+                               LabelCache labelCache, TextMetrics textMetrics) {
+        Keystroke.colorManager = colorManager;
+        Keystroke.keyBindingRegistry = keyBindingRegistry;
+        Keystroke.inputSnapshot = inputSnapshot;
+        Keystroke.labelCache = labelCache;
+        Keystroke.textMetrics = textMetrics;
+    }
+
+    /**
+     * Creates a keystroke object from the values of a saved keystroke.
+     *
+     * @param description The description of the keybinding, "BARRIER" for barriers.
+     * @param type        The {@link KeyType} of this keystroke.
+     * @param def         Whether this is a default keystroke.
+     */
+    public static Keystroke load(String description, KeyType type, boolean def, double height, double width, double textWidth) {
+        if (description.equals("BARRIER")) {
+            final Keystroke barrier = new BarrierKeystroke();
+            barrier.setHeight(height);
+            barrier.setWidth(width);
+            return barrier;
+        }
+
+        return new Keystroke(description, type, def, height, width, textWidth);
+    }
+
     /**
      * Creates a new keystroke object.
      *
@@ -86,27 +129,59 @@ public class Keystroke {
         return new Keystroke(bind, type, def);
     }
 
+    /**
+     * Creates a copy of this keystroke with the same size, not linked to any overlay.
+     */
+    public Keystroke copy() {
+        final Keystroke copy = load(this.keyBindingDescription, this.keyType, this.isDefault, this.height, this.width, this.textWidth);
+        copy.setOwningOverlay(this.getOwningOverlayName());
+        return copy;
+    }
+
     /**
      * Get the overlay to which this keystroke is registered to.
      */
     @Nullable
     public OverlayHud getOwningOverlay() {
-        return Keystrokes.getInstance().getHudManager().getOverlayHuds().stream().filter(hud -> hud.getName().equals(this.owningOverlay))
-                .findFirst().orElse(null);
+        return this.owner;
     }
 
     /**
-     * Sets the owning overlay for this keystroke.
+     * Returns the name of the overlay to which this keystroke is registered to.
      */
-    public void setOwningOverlay(String owningOverlay) {
+    String getOwningOverlayName() {
+        return this.owner != null ? this.owner.getName() : this.owningOverlay;
+    }
+
+    /**
+     * Sets the name of the owning overlay, as it was saved.
+     * <p>
+     * The overlay itself is linked once the keystroke is added to it.
+     */
+    void setOwningOverlay(String owningOverlay) {
         this.owningOverlay = owningOverlay;
     }
 
+    /**
+     * Sets the owning overlay for this keystroke.
+     */
+    public void setOwningOverlay(OverlayHud owner) {
+        this.owner = owner;
+        this.owningOverlay = owner.getName();
+    }
+
     /**
      * Returns the scale of the overlay this keystroke is registered to.
      */
     public double getScale() {
-        return this.getOwningOverlay() == null ? 1 : this.getOwningOverlay().getScale();
+        return this.owner == null ? 1 : this.owner.getScale();
+    }
+
+    /**
+     * Returns the description of the keybinding for this keystroke, "BARRIER" for barriers.
+     */
+    public String getKeyBindingDescription() {
+        return this.keyBindingDescription;
     }
 
     /**
@@ -117,16 +192,41 @@ public class Keystroke {
     @Nullable
     public KeyBinding getKeyBinding() {
         if (this.keyBindingDescription.equals("BARRIER")) return null;
-        return Arrays.stream(Minecraft.getInstance().gameSettings.keyBindings)
-                .filter(key -> key.getKeyDescription().equals(this.keyBindingDescription)).findFirst().orElse(null);
+
+        // only resolve the keybinding again if the controls might have changed since
+        if (this.keyBindingGeneration != keyBindingRegistry.getGeneration()) {
+            this.keyBindingIndex = keyBindingRegistry.indexOf(this.keyBindingDescription);
+            this.keyBinding = keyBindingRegistry.get(this.keyBindingDescription);
+            this.keyBindingGeneration = keyBindingRegistry.getGeneration();
+        }
+
+        return this.keyBinding;
     }
 
     /**
-     * Checks if the keybinding is currently pressed down.
+     * Checks if the keybinding was pressed down at the start of the current frame.
      */
     public boolean isPressed() {
         if (this.getKeyBinding() == null) return false;
-        return this.getKeyBinding().isKeyDown();
+        return inputSnapshot.isPressed(this.keyBindingIndex);
+    }
+
+    /**
+     * Returns the state of everything changing what this keystroke looks like from frame to frame,
+     * i.e. whether or not it's pressed and the CPS of the mouse keys.
+     * <p>
+     * Used to find the keystrokes that have to be rendered again in the {@link me.arrayofc.keystrokes.hud.OverlayRenderCache}.
+     */
+    public int getDisplayState() {
+        int state = this.isPressed() ? 1 : 0;
+
+        if (this.keyType == KeyType.MOUSE_LEFT) {
+            state |= inputSnapshot.getLeftCps() << 1;
+        } else if (this.keyType == KeyType.MOUSE_RIGHT) {
+            state |= inputSnapshot.getRightCps() << 1;
+        }
+
+        return state;
     }
 
     /**
@@ -138,11 +238,13 @@ public class Keystroke {
 
     /**
      * Updates the width of the text.
+     * <p>
+     * The width is read from the {@link TextMetrics}, so the text is only measured the first time it's displayed.
      *
      * @return The updated text width.
      */
     public double updateTextWidth() {
-        return this.textWidth = Minecraft.getInstance().fontRenderer.getStringWidth(this.getTextContent()) * this.getScale();
+        return this.textWidth = textMetrics.getWidth(this.getTextContent(), this.getScale());
     }
 
     /**
@@ -164,26 +266,11 @@ public class Keystroke {
      */
     public String getTextContent() {
         if (this.keyType == KeyType.KEY) {
-            // if the HUD type is WASD, we'll display the key name
-            if (KeystrokesConfig.HUD_KEY_LOOK_TYPE.get() == KeystrokesConfig.MoveType.WASD)
-                return getKeyBinding() == null ? "N/A" : Strings.getKeyName(getKeyBinding()).toUpperCase();
-
-            // otherwise if the keybinding isn't null we'll put the arrow symbols
-            if (this.getKeyBinding() != null) {
-                switch (this.getKeyBinding().getKeyDescription()) {
-                    case "key.forward":
-                        return Translations.ARROW_UP.getString();
-                    case "key.left":
-                        return Translations.ARROW_LEFT.getString();
-                    case "key.right":
-                        return Translations.ARROW_RIGHT.getString();
-                    case "key.back":
-                        return Translations.ARROW_DOWN.getString();
-                    default:
-                        // for any other keys that aren't "WASD" related
-                        return getKeyBinding() == null ? "N/A" : Strings.getKeyName(getKeyBinding()).toUpperCase();
-                }
-            }
+            final KeystrokesConfig.MoveType moveType = KeystrokesConfig.snapshot().getKeyLookType();
+
+            // the key name or the arrow symbol, built once & then read from the cache
+            if (this.getKeyBinding() != null) return labelCache.getKeyLabel(this.getKeyBinding(), moveType);
+            if (moveType == KeystrokesConfig.MoveType.WASD) return "N/A";
 
         } else if (this.keyType == KeyType.MOUSE_LEFT) {
             return this.getOnClickText(true);
@@ -196,47 +283,36 @@ public class Keystroke {
     }
 
     /**
-     * Renders the keystroke object.
+     * Adds the keystroke object to the batch of the current frame.
+     * <p>
+     * This is invoked for every key every frame, so nothing on this path may allocate.
      */
-    public void render(OverlayHud hud) {
-        // Render the HUD background
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-        // quads requires 4 vertices to be passed, one for each corner
-        GL11.glBegin(GL11.GL_QUADS);
+    public void render(OverlayHud hud, OverlayLayout.Cell cell, HudBatch batch) {
         // Select color for the HUD background
-        if (this.isPressed() || MainConfigScreen.currentColorOptionsScreen != null && MainConfigScreen.currentColorOptionsScreen.currentTab == ColorTab.CLICK)
-            ColorManager.glColor(Color.LIGHT_GRAY.getRGB(), 0.6f);
-        else
-            ColorManager.glColor(colorManager.getHudBackgroundColor(hud), 0.6f);
-        GL11.glVertex3d(0.0, this.height, 0.0);
-        GL11.glVertex3d(this.width, this.height, 0.0);
-        GL11.glVertex3d(this.width, 0.0, 0.0);
-        GL11.glVertex3d(0.0, 0.0, 0.0);
-        GL11.glEnd();
-
-        GL11.glDisable(GL11.GL_BLEND);
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        final int color = colorManager.getHudKeyBackgroundColor(hud, this.isPressed());
+
+        // Render the HUD background
+        batch.quad(cell.getMinX(), cell.getMinY(), cell.getMaxX(), cell.getMaxY(), color, 0.6f);
 
         // Render the text on top of the background
-        this.renderText(hud);
+        this.renderText(hud, cell, batch);
     }
 
     /**
      * Renders the text for this keystroke.
      */
-    private void renderText(OverlayHud hud) {
+    private void renderText(OverlayHud hud, OverlayLayout.Cell cell, HudBatch batch) {
         if (this.keyType == KeyType.KEY) {
-            this.renderKeyText(this.getTextContent(), hud);
+            this.renderKeyText(this.getTextContent(), hud, cell, batch);
 
         } else if (this.keyType == KeyType.MOUSE_LEFT) {
-            this.renderMouse(true, hud);
+            this.renderMouse(true, hud, cell, batch);
 
         } else if (this.keyType == KeyType.MOUSE_RIGHT) {
-            this.renderMouse(false, hud);
+            this.renderMouse(false, hud, cell, batch);
 
         } else if (this.keyType == KeyType.SPACEBAR) {
-            this.renderSpacebar(hud);
+            this.renderSpacebar(hud, cell, batch);
         }
     }
 
@@ -245,25 +321,20 @@ public class Keystroke {
      *
      * @param text Text to render.
      */
-    private void renderKeyText(String text, OverlayHud hud) {
+    private void renderKeyText(String text, OverlayHud hud, OverlayLayout.Cell cell, HudBatch batch) {
         if (this.getKeyBinding() == null) return;
 
-        final FontRenderer fontRenderer = Minecraft.getInstance().fontRenderer;
+        // the text being rendered is the text content, measured at the scale of the hud being rendered
+        this.textWidth = textMetrics.getWidth(text, hud.getScale());
 
-        // the centered x & y text position
-        float x = (float) ((this.width - this.updateTextWidth()) / (2 * hud.getScale()));
-        float y = (float) ((this.height - Minecraft.getInstance().fontRenderer.FONT_HEIGHT * hud.getScale()) / (2 * hud.getScale()));
+        // the position of the text on the rainbow effect
+        double offset = cell.getRainbowOffset() + (this.width - this.textWidth) / (2 * hud.getScale() * RainbowEngine.KEY_UNIT);
 
-        GlStateManager.pushMatrix();
-        GlStateManager.scaled(hud.getScale(), hud.getScale(), 0);
+        // the x & y text position centered on the label anchor
+        float x = (float) ((cell.getLabelX() - this.textWidth / 2) / hud.getScale());
+        float y = (float) ((cell.getLabelY() - textMetrics.getFontHeight() * hud.getScale() / 2) / hud.getScale());
 
-        if (KeystrokesConfig.TEXT_SHADOW.get()) {
-            fontRenderer.drawStringWithShadow(new MatrixStack(), text, x, y, this.isPressed() ? colorManager.getHudClickColor(hud, x) : colorManager.getHudTextColor(hud, x));
-        } else {
-            fontRenderer.drawString(new MatrixStack(), text, x, y, this.isPressed() ? colorManager.getHudClickColor(hud, x) : colorManager.getHudTextColor(hud, x));
-        }
-
-        GlStateManager.popMatrix();
+        batch.text(text, x, y, colorManager.getHudKeyColor(hud, this, offset), KeystrokesConfig.snapshot().isTextShadow());
     }
 
     /**
@@ -271,67 +342,50 @@ public class Keystroke {
      *
      * @param left True for left mouse button, false for right.
      */
-    private void renderMouse(boolean left, OverlayHud hud) {
-        final KeystrokesConfig.CpsType type = KeystrokesConfig.SHOW_CPS.get();
+    private void renderMouse(boolean left, OverlayHud hud, OverlayLayout.Cell cell, HudBatch batch) {
+        final KeystrokesConfig.CpsType type = KeystrokesConfig.snapshot().getShowCps();
 
         if (type == KeystrokesConfig.CpsType.NEVER || type == KeystrokesConfig.CpsType.ON_CLICK) {
             // if this is the case, we won't have to render two lines of text
-            this.renderKeyText(this.getOnClickText(left), hud);
+            this.renderKeyText(this.getOnClickText(left), hud, cell, batch);
 
         } else {
-            final FontRenderer font = Minecraft.getInstance().fontRenderer;
             // the text to display on the 1st and 2nd row
             final String firstRow = left ? "LMB" : "RMB";
-            final String secondRow = (left ? MouseHandler.getLeft().getCPS() : MouseHandler.getRight().getCPS()) + " CPS";
+            final String secondRow = LabelCache.getCpsLabel(left ? inputSnapshot.getLeftCps() : inputSnapshot.getRightCps());
 
             // the text width of the 1st and 2nd row
-            double firstRowTextWidth = font.getStringWidth(firstRow) * hud.getScale();
-            double secondRowTextWidth = font.getStringWidth(secondRow) * hud.getScale();
+            double firstRowTextWidth = textMetrics.getWidth(firstRow, hud.getScale());
+            double secondRowTextWidth = textMetrics.getWidth(secondRow, hud.getScale());
 
-            // the centered x text position for 1st and 2nd row
-            float firstRowX = (float) ((this.width - firstRowTextWidth) / (2 * hud.getScale()));
-            float secondRowX = (float) ((this.width - secondRowTextWidth) / (2 * hud.getScale()));
+            // the position of the 1st and 2nd row on the rainbow effect
+            double firstRowOffset = cell.getRainbowOffset() + (this.width - firstRowTextWidth) / (2 * hud.getScale() * RainbowEngine.KEY_UNIT);
+            double secondRowOffset = cell.getRainbowOffset() + (this.width - secondRowTextWidth) / (2 * hud.getScale() * RainbowEngine.KEY_UNIT);
 
-            // the centered y position for both text rows, offset is +/- 5 for each row
-            float y = (float) ((this.height - Minecraft.getInstance().fontRenderer.FONT_HEIGHT * hud.getScale()) / (2 * hud.getScale()));
+            // the x text position for 1st and 2nd row centered on the label anchor
+            float firstRowX = (float) ((cell.getLabelX() - firstRowTextWidth / 2) / hud.getScale());
+            float secondRowX = (float) ((cell.getLabelX() - secondRowTextWidth / 2) / hud.getScale());
 
-            GlStateManager.pushMatrix();
-            GlStateManager.scaled(this.getScale(), this.getScale(), 0);
-
-            if (KeystrokesConfig.TEXT_SHADOW.get()) {
-                font.drawStringWithShadow(new MatrixStack(), firstRow, firstRowX, y - 5, this.isPressed() ? colorManager.getHudClickColor(hud, firstRowX) : colorManager.getHudTextColor(hud, firstRowX));
-                font.drawStringWithShadow(new MatrixStack(), secondRow, secondRowX, y + 5, this.isPressed() ? colorManager.getHudClickColor(hud, secondRowX) : colorManager.getHudTextColor(hud, secondRowX));
-            } else {
-                font.drawString(new MatrixStack(), firstRow, firstRowX, y - 5, this.isPressed() ? colorManager.getHudClickColor(hud, firstRowX) : colorManager.getHudTextColor(hud, firstRowX));
-                font.drawString(new MatrixStack(), secondRow, secondRowX, y + 5, this.isPressed() ? colorManager.getHudClickColor(hud, secondRowX) : colorManager.getHudTextColor(hud, secondRowX));
-            }
+            // the centered y position for both text rows, offset is +/- 5 for each row
+            float y = (float) ((cell.getLabelY() - textMetrics.getFontHeight() * hud.getScale() / 2) / hud.getScale());
 
-            GlStateManager.popMatrix();
+            final boolean shadow = KeystrokesConfig.snapshot().isTextShadow();
+            batch.text(firstRow, firstRowX, y - 5, colorManager.getHudKeyColor(hud, this, firstRowOffset), shadow);
+            batch.text(secondRow, secondRowX, y + 5, colorManager.getHudKeyColor(hud, this, secondRowOffset), shadow);
         }
     }
 
     /**
      * Renders the space bar rectangle.
      */
-    private void renderSpacebar(OverlayHud hud) {
+    private void renderSpacebar(OverlayHud hud, OverlayLayout.Cell cell, HudBatch batch) {
         final double xMin = this.width * 0.25, yMin = this.height / 2 - 1, xMax = this.width * 0.75, yMax = this.height / 2 + 1;
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-        GL11.glShadeModel(GL11.GL_SMOOTH);
 
-        // quads requires 4 vertices to be passed, one for each corner
-        GL11.glBegin(GL11.GL_QUADS);
-        ColorManager.glColor(this.isPressed() ? colorManager.getHudClickColor(hud, xMin) : colorManager.getHudTextColor(hud, xMin), -1);
-        GL11.glVertex3d(xMin, yMax, 0.0);
-        ColorManager.glColor(this.isPressed() ? colorManager.getHudClickColor(hud, xMax) : colorManager.getHudTextColor(hud, xMax), -1);
-        GL11.glVertex3d(xMax, yMax, 0.0);
-        GL11.glVertex3d(xMax, yMin, 0.0);
-        ColorManager.glColor(this.isPressed() ? colorManager.getHudClickColor(hud, xMin) : colorManager.getHudTextColor(hud, xMin), -1);
-        GL11.glVertex3d(xMin, yMin, 0.0);
+        final int leftColor = colorManager.getHudKeyColor(hud, this, cell.getRainbowOffset() + xMin / (hud.getScale() * RainbowEngine.KEY_UNIT));
+        final int rightColor = colorManager.getHudKeyColor(hud, this, cell.getRainbowOffset() + xMax / (hud.getScale() * RainbowEngine.KEY_UNIT));
 
-        GL11.glEnd();
-        GL11.glDisable(GL11.GL_BLEND);
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        batch.gradientQuad((float) (cell.getMinX() + xMin), (float) (cell.getMinY() + yMin),
+                (float) (cell.getMinX() + xMax), (float) (cell.getMinY() + yMax), leftColor, rightColor, -1);
     }
 
     /**
@@ -341,13 +395,13 @@ public class Keystroke {
      * @return The text for the mouse button.
      */
     private String getOnClickText(boolean left) {
-        if (KeystrokesConfig.SHOW_CPS.get() == KeystrokesConfig.CpsType.NEVER) return left ? "LMB" : "RMB";
+        if (KeystrokesConfig.snapshot().getShowCps() == KeystrokesConfig.CpsType.NEVER) return left ? "LMB" : "RMB";
 
-        int cps = (left ? MouseHandler.getLeft().getCPS() : MouseHandler.getRight().getCPS());
+        int cps = (left ? inputSnapshot.getLeftCps() : inputSnapshot.getRightCps());
         if (cps == 0) {
             return left ? "LMB" : "RMB";
         } else {
-            return cps + " CPS";
+            return LabelCache.getCpsLabel(cps);
         }
     }
 
@@ -396,7 +450,29 @@ public class Keystroke {
      * Represents a type for the keystroke.
      */
     public enum KeyType {
-        SPACEBAR, MOUSE_LEFT, MOUSE_RIGHT, KEY
+        SPACEBAR(15, 78), MOUSE_LEFT(27, 38), MOUSE_RIGHT(27, 38), KEY(25, 25);
+
+        // The default height and width of a keystroke of this type, at scale 1
+        private final double defaultHeight, defaultWidth;
+
+        KeyType(double defaultHeight, double defaultWidth) {
+            this.defaultHeight = defaultHeight;
+            this.defaultWidth = defaultWidth;
+        }
+
+        /**
+         * Returns the default height of a keystroke of this type, at scale 1.
+         */
+        public double getDefaultHeight() {
+            return this.defaultHeight;
+        }
+
+        /**
+         * Returns the default width of a keystroke of this type, at scale 1.
+         */
+        public double getDefaultWidth() {
+            return this.defaultWidth;
+        }
     }
 
     /**
@@ -419,6 +495,17 @@ public class Keystroke {
             this.keystrokes = keystrokes;
         }
 
+        /**
+         * Creates a copy of this row with copies of its keystrokes.
+         */
+        public Row copy() {
+            final List<Keystroke> keystrokes = Lists.newArrayListWithCapacity(this.keystrokes.size());
+            for (Keystroke keystroke : this.keystrokes) {
+                keystrokes.add(keystroke.copy());
+            }
+            return new Row(keystrokes);
+        }
+
         /**
          * Returns the amount of {@link Keystroke} on this row.
          */
@@ -428,10 +515,14 @@ public class Keystroke {
 
         /**
          * Returns the height gap for the next row in the HUD.
+         * <p>
+         * Only used when compiling the {@link OverlayLayout} of an overlay.
          */
         public double getRowHeightOffset() {
-            return this.keystrokes.stream().findFirst().map(keystroke -> keystroke.getHeight() + 1.5 * keystroke.getScale())
-                    .orElseThrow(() -> new RuntimeException("Keys on row misses height"));
+            if (this.keystrokes.isEmpty()) throw new RuntimeException("Keys on row misses height");
+
+            final Keystroke keystroke = this.keystrokes.get(0);
+            return keystroke.getHeight() + 1.5 * keystroke.getScale();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package me.arrayofc.keystrokes.keystroke;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializes {@link Keystroke} objects, including {@link Keystroke.BarrierKeystroke}.
+ */
+public class KeystrokeAdapter extends TypeAdapter<Keystroke> {
+
+    @Override
+    public void write(JsonWriter out, Keystroke keystroke) throws IOException {
+        out.beginObject();
+        out.name("keyBindingDescription").value(keystroke.getKeyBindingDescription());
+        out.name("keyType").value(keystroke.getKeyType().name());
+        out.name("height").value(keystroke.getHeight());
+        out.name("width").value(keystroke.getWidth());
+        out.name("textWidth").value(keystroke.getTextWidth());
+        out.name("isDefault").value(keystroke.isDefault());
+        if (keystroke.getOwningOverlayName() != null) out.name("owningOverlay").value(keystroke.getOwningOverlayName());
+        out.endObject();
+    }
+
+    @Override
+    public Keystroke read(JsonReader in) throws IOException {
+        String description = "BARRIER", owningOverlay = null;
+        Keystroke.KeyType keyType = Keystroke.KeyType.KEY;
+        double height = 0, width = 0, textWidth = 0;
+        boolean isDefault = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "keyBindingDescription":
+                    description = in.nextString();
+                    break;
+                case "keyType":
+                    keyType = Keystroke.KeyType.valueOf(in.nextString());
+                    break;
+                case "height":
+                    height = in.nextDouble();
+                    break;
+                case "width":
+                    width = in.nextDouble();
+                    break;
+                case "textWidth":
+                    textWidth = in.nextDouble();
+                    break;
+                case "isDefault":
+                    isDefault = in.nextBoolean();
+                    break;
+                case "owningOverlay":
+                    owningOverlay = in.nextString();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        final Keystroke keystroke = Keystroke.load(description, keyType, isDefault, height, width, textWidth);
+        keystroke.setOwningOverlay(owningOverlay);
+        return keystroke;
+    }
+}
@@ -0,0 +1,110 @@
+package me.arrayofc.keystrokes.keystroke;
+
+import com.google.common.collect.Maps;
+import me.arrayofc.keystrokes.KeystrokesConfig;
+import me.arrayofc.keystrokes.util.Strings;
+import me.arrayofc.keystrokes.util.Translations;
+import net.minecraft.client.settings.KeyBinding;
+
+import java.util.Map;
+
+/**
+ * Caches the labels displayed on the keystrokes, so they're not built again every frame.
+ * <p>
+ * The key labels are cached per keybinding and key display mode. They're cleared when the language
+ * or the controls may have changed, and a label is also built again if its keybinding has been bound to another key.
+ */
+public class LabelCache {
+
+    // The highest CPS with a preallocated label, higher values are built when needed
+    private static final int MAX_CACHED_CPS = 99;
+
+    // The CPS labels, indexed by the CPS
+    private static final String[] CPS_LABELS = new String[MAX_CACHED_CPS + 1];
+
+    static {
+        for (int cps = 0; cps <= MAX_CACHED_CPS; cps++) {
+            CPS_LABELS[cps] = cps + " CPS";
+        }
+    }
+
+    // The cached labels, mapped by their keybindings
+    private final Map<KeyBinding, Entry> keyLabels = Maps.newHashMap();
+
+    /**
+     * Returns the label of a keybinding, either the name of its key or an arrow.
+     *
+     * @param keyBinding The keybinding.
+     * @param moveType   The display mode of the movement keys.
+     * @return The label of the keybinding.
+     */
+    public String getKeyLabel(KeyBinding keyBinding, KeystrokesConfig.MoveType moveType) {
+        Entry entry = this.keyLabels.get(keyBinding);
+
+        // the translation key is the same instance as long as the keybinding is bound to the same key
+        if (entry == null || entry.translationKey != keyBinding.getTranslationKey()) {
+            this.keyLabels.put(keyBinding, entry = new Entry(keyBinding.getTranslationKey()));
+        }
+
+        String label = entry.labels[moveType.ordinal()];
+        if (label == null) {
+            entry.labels[moveType.ordinal()] = label = this.createKeyLabel(keyBinding, moveType);
+        }
+        return label;
+    }
+
+    /**
+     * Returns the label showing a CPS value.
+     *
+     * @param cps The clicks per second.
+     * @return The label, e.g. "8 CPS".
+     */
+    public static String getCpsLabel(int cps) {
+        return cps >= 0 && cps <= MAX_CACHED_CPS ? CPS_LABELS[cps] : cps + " CPS";
+    }
+
+    /**
+     * Clears the cached labels.
+     * <p>
+     * Invoked when the language may have changed or the controls may have been rebound.
+     */
+    public void invalidate() {
+        this.keyLabels.clear();
+    }
+
+    private String createKeyLabel(KeyBinding keyBinding, KeystrokesConfig.MoveType moveType) {
+        // if the HUD type is WASD, we'll display the key name
+        if (moveType == KeystrokesConfig.MoveType.WASD) return Strings.getKeyName(keyBinding).toUpperCase();
+
+        // otherwise we'll put the arrow symbols
+        switch (keyBinding.getKeyDescription()) {
+            case "key.forward":
+                return Translations.ARROW_UP.getString();
+            case "key.left":
+                return Translations.ARROW_LEFT.getString();
+            case "key.right":
+                return Translations.ARROW_RIGHT.getString();
+            case "key.back":
+                return Translations.ARROW_DOWN.getString();
+            default:
+                // for any other keys that aren't "WASD" related
+                return Strings.getKeyName(keyBinding).toUpperCase();
+        }
+    }
+
+    /**
+     * The labels of a keybinding, for the key it was bound to when they were built.
+     */
+    private static class Entry {
+
+        // The translation key of the key the labels were built for
+        private final String translationKey;
+
+        // The labels, indexed by the ordinal of the key display mode
+        private final String[] labels = new String[KeystrokesConfig.MoveType.values().length];
+
+        private Entry(String translationKey) {
+            this.translationKey = translationKey;
+        }
+    }
+}
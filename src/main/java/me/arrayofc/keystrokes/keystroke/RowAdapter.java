@@ -0,0 +1,50 @@
+package me.arrayofc.keystrokes.keystroke;
+
+import com.google.common.collect.Lists;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serializes {@link Keystroke.Row} objects.
+ */
+public class RowAdapter extends TypeAdapter<Keystroke.Row> {
+
+    // The adapter for the keystrokes on the rows
+    private final KeystrokeAdapter keystrokeAdapter = new KeystrokeAdapter();
+
+    @Override
+    public void write(JsonWriter out, Keystroke.Row row) throws IOException {
+        out.beginObject();
+        out.name("keystrokes").beginArray();
+        for (Keystroke keystroke : row.getKeystrokes()) {
+            this.keystrokeAdapter.write(out, keystroke);
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    @Override
+    public Keystroke.Row read(JsonReader in) throws IOException {
+        final List<Keystroke> keystrokes = Lists.newArrayList();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("keystrokes")) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    keystrokes.add(this.keystrokeAdapter.read(in));
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return new Keystroke.Row(keystrokes);
+    }
+}
@@ -0,0 +1,78 @@
+package me.arrayofc.keystrokes.util;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.settings.KeyBinding;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of the input state, captured once at the start of every frame.
+ * <p>
+ * Every keybinding is sampled into a bitset indexed like {@link net.minecraft.client.GameSettings#keyBindings},
+ * so all the overlays read the same pressed state during a frame without polling the keybindings again.
+ */
+public class InputSnapshot {
+
+    // The pressed state of the keybindings, one bit per keybinding
+    private long[] pressed = new long[0];
+
+    // The clicks per second of the left and right mouse button
+    private int leftCps, rightCps;
+
+    /**
+     * Samples the pressed state of every keybinding and the clicks per second of the mouse buttons.
+     * <p>
+     * Invoked at the start of every frame.
+     */
+    public void capture() {
+        this.capture(Minecraft.getInstance().gameSettings.keyBindings, MouseHandler.getLeft().getCPS(), MouseHandler.getRight().getCPS());
+    }
+
+    /**
+     * Samples the pressed state of the given keybindings, and stores the given clicks per second.
+     *
+     * @param keyBindings The keybindings, indexed like in the game settings.
+     * @param leftCps     The clicks per second of the left mouse button.
+     * @param rightCps    The clicks per second of the right mouse button.
+     */
+    public void capture(KeyBinding[] keyBindings, int leftCps, int rightCps) {
+        final int words = (keyBindings.length + 63) >>> 6;
+        if (this.pressed.length != words) {
+            this.pressed = new long[words];
+        } else {
+            Arrays.fill(this.pressed, 0L);
+        }
+
+        for (int i = 0; i < keyBindings.length; i++) {
+            if (keyBindings[i].isKeyDown()) this.pressed[i >>> 6] |= 1L << i;
+        }
+
+        this.leftCps = leftCps;
+        this.rightCps = rightCps;
+    }
+
+    /**
+     * Checks whether or not a keybinding was pressed down when the snapshot was captured.
+     *
+     * @param index The index of the keybinding in the game settings.
+     * @return True if pressed, false otherwise or if the index isn't valid.
+     */
+    public boolean isPressed(int index) {
+        if (index < 0 || (index >>> 6) >= this.pressed.length) return false;
+        return (this.pressed[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns the clicks per second of the left mouse button.
+     */
+    public int getLeftCps() {
+        return this.leftCps;
+    }
+
+    /**
+     * Returns the clicks per second of the right mouse button.
+     */
+    public int getRightCps() {
+        return this.rightCps;
+    }
+}
@@ -1,19 +1,28 @@
 package me.arrayofc.keystrokes.util;
 
-import com.google.common.collect.Lists;
 import me.arrayofc.keystrokes.Keystrokes;
 import net.minecraft.client.Minecraft;
 import net.minecraftforge.client.event.InputEvent;
 import net.minecraftforge.common.MinecraftForge;
 import org.lwjgl.glfw.GLFW;
 
-import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A mouse handler listens and manages the mouse click inputs.
+ * <p>
+ * Clicks are only recorded by the client thread, while the counts can be read from any thread without locking.
  */
 public class MouseHandler {
 
+    // The time window clicks are counted in
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    // The maximum amount of clicks tracked within the window, must be a power of two
+    private static final int CAPACITY = 64;
+
     private static final MouseHandler left, right;
     static {
         left = new MouseHandler();
@@ -30,9 +39,9 @@ public class MouseHandler {
 
         if (Keystrokes.getInstance().shouldShowOverlays()) {
             if (event.getButton() == 0) {
-                left.clicks.add(System.currentTimeMillis() + 1000);
+                left.click(System.nanoTime());
             } else {
-                right.clicks.add(System.currentTimeMillis() + 1000);
+                right.click(System.nanoTime());
             }
         }
     }
@@ -51,15 +60,57 @@ public class MouseHandler {
         return right;
     }
 
-    // A queue containing the click times within a second
-    private final Queue<Long> clicks = Lists.newLinkedList();
+    // A ring buffer containing the click times within the window
+    private final AtomicLongArray clicks = new AtomicLongArray(CAPACITY);
+
+    // The amount of clicks ever recorded, published after the time of the click has been written
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Records a click at the given time.
+     * <p>
+     * Must only be invoked from the client thread.
+     *
+     * @param time The time of the click, from {@link System#nanoTime()}.
+     */
+    private void click(long time) {
+        final long next = this.sequence.get();
+
+        // the oldest click is overwritten if the buffer is full
+        this.clicks.lazySet((int) (next & (CAPACITY - 1)), time);
+        this.sequence.lazySet(next + 1);
+    }
+
+    /**
+     * Returns the amount of clicks ever recorded for this mouse button.
+     */
+    public long getTotalClicks() {
+        return this.sequence.get();
+    }
 
     /**
      * Returns the clicks per second for this mouse button.
+     * <p>
+     * Safe to invoke from any thread.
      */
     public int getCPS() {
-        while (!this.clicks.isEmpty() && this.clicks.peek() < System.currentTimeMillis())
-            this.clicks.remove();
-        return this.clicks.size();
+        final long now = System.nanoTime();
+
+        while (true) {
+            final long end = this.sequence.get();
+            // the oldest slot is left out, as it's the one the next click is written to
+            final long start = Math.max(0, end - (CAPACITY - 1));
+
+            // walk back from the newest click until a click is older than the window
+            long seq = end;
+            while (seq > start && now - this.clicks.get((int) ((seq - 1) & (CAPACITY - 1))) <= WINDOW)
+                seq--;
+
+            // if new clicks have overwritten the slots we read, we'll have to read them again
+            final long oldestRead = seq > start ? seq - 1 : seq;
+            if (this.sequence.get() < oldestRead + CAPACITY) {
+                return (int) (end - seq);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package me.arrayofc.keystrokes.util;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.client.Minecraft;
+
+/**
+ * Caches the widths of the texts rendered on the keystrokes, so the font doesn't have to measure them every frame.
+ * <p>
+ * The widths are measured once per text at scale 1, the scaled widths are a multiplication away.
+ * They're cleared when the resources are reloaded or the font is switched.
+ */
+public class TextMetrics {
+
+    // The font the texts are measured with
+    private final Font font;
+
+    // The measured widths, mapped by their texts
+    private final Object2IntMap<String> widths = new Object2IntOpenHashMap<>();
+
+    // Whether or not the unicode font was forced when the widths were measured, switching it doesn't reload the resources
+    private boolean forceUnicodeFont;
+
+    public TextMetrics() {
+        this(new GameFont());
+    }
+
+    public TextMetrics(Font font) {
+        this.font = font;
+        this.widths.defaultReturnValue(-1);
+    }
+
+    /**
+     * Returns the width of a text.
+     *
+     * @param text The text to measure.
+     * @return The width of the text at scale 1.
+     */
+    public int getWidth(String text) {
+        if (this.forceUnicodeFont != this.font.isForceUnicode()) {
+            this.invalidate();
+        }
+
+        int width = this.widths.getInt(text);
+        if (width == -1) {
+            width = this.font.getWidth(text);
+            this.widths.put(text, width);
+        }
+        return width;
+    }
+
+    /**
+     * Returns the width of a text at a scale.
+     *
+     * @param text  The text to measure.
+     * @param scale The scale the text is rendered at.
+     * @return The scaled width of the text.
+     */
+    public double getWidth(String text, double scale) {
+        return this.getWidth(text) * scale;
+    }
+
+    /**
+     * Returns the height of a line of text at scale 1.
+     */
+    public int getFontHeight() {
+        return this.font.getHeight();
+    }
+
+    /**
+     * Clears the measured widths.
+     * <p>
+     * Invoked when the resources are reloaded, which might have changed the font.
+     */
+    public void invalidate() {
+        this.widths.clear();
+        this.forceUnicodeFont = this.font.isForceUnicode();
+    }
+
+    /**
+     * The font the texts are measured with.
+     */
+    public interface Font {
+
+        /**
+         * Measures the width of a text at scale 1.
+         */
+        int getWidth(String text);
+
+        /**
+         * Returns the height of a line of text at scale 1.
+         */
+        int getHeight();
+
+        /**
+         * Whether or not the unicode font is forced, which changes the widths without reloading the resources.
+         */
+        boolean isForceUnicode();
+    }
+
+    /**
+     * The font of the game.
+     */
+    private static class GameFont implements Font {
+
+        @Override
+        public int getWidth(String text) {
+            return Minecraft.getInstance().fontRenderer.getStringWidth(text);
+        }
+
+        @Override
+        public int getHeight() {
+            return Minecraft.getInstance().fontRenderer.FONT_HEIGHT;
+        }
+
+        @Override
+        public boolean isForceUnicode() {
+            return Minecraft.getInstance().gameSettings.forceUnicodeFont;
+        }
+    }
+}
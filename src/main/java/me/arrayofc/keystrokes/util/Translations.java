@@ -61,7 +61,6 @@ public final class Translations {
     public static final ITextComponent COLOR_SCREEN_HUD_TOOLTIP = new TranslationTextComponent("colorscreen.hud-tooltip");
 
     public static final ITextComponent KEY_SCREEN_TITLE = new TranslationTextComponent("keyscreen.title");
-    public static final ITextComponent KEY_SCREEN_MAX = new TranslationTextComponent("keyscreen.reached-max");
     public static final ITextComponent KEY_SCREEN_NEW_BINDING_LABEL = new TranslationTextComponent("keyscreen.new-custom-overlay-label");
     public static final ITextComponent KEY_SCREEN_NEW_BINDING_TOOLTIP = new TranslationTextComponent("keyscreen.new-custom-overlay-tooltip");
     public static final ITextComponent KEY_SCREEN_DELETE_OVERLAY_LABEL = new TranslationTextComponent("keyscreen.delete-overlay-label");
@@ -0,0 +1,211 @@
+package me.arrayofc.keystrokes.hud;
+
+import me.arrayofc.keystrokes.color.ColorManager;
+import me.arrayofc.keystrokes.keystroke.KeyBindingRegistry;
+import me.arrayofc.keystrokes.keystroke.Keystroke;
+import me.arrayofc.keystrokes.keystroke.LabelCache;
+import me.arrayofc.keystrokes.util.InputSnapshot;
+import me.arrayofc.keystrokes.util.TextMetrics;
+import net.minecraft.client.settings.KeyBinding;
+import net.minecraft.client.util.InputMappings;
+import net.minecraft.util.math.vector.Matrix4f;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.glfw.GLFW;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Renders overlays into a counting sink without the game, and checks that a frame in the steady state doesn't allocate.
+ * <p>
+ * Covers the per-frame path of {@link HudRenderer#renderScreenOverlays()} when the overlays are batched:
+ * the input capture, the layout walk, the colors, the labels and the vertices written to the batch.
+ */
+public class RenderAllocationTest {
+
+    // The frames rendered before measuring, so everything has been compiled & cached
+    private static final int WARMUP_FRAMES = 20_000;
+
+    // The frames measured
+    private static final int FRAMES = 10_000;
+
+    // The allocation counters of the JVM
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Whether or not the keys are held down in the current frame
+    private boolean pressed;
+
+    private KeyBinding[] keyBindings;
+    private InputSnapshot inputSnapshot;
+    private ColorManager colorManager;
+    private CountingSink sink;
+    private HudBatch batch;
+    private OverlayHud[] overlays;
+
+    @Before
+    public void setUp() {
+        this.keyBindings = new KeyBinding[]{
+                this.keyBinding("key.forward", InputMappings.Type.KEYSYM, GLFW.GLFW_KEY_W),
+                this.keyBinding("key.left", InputMappings.Type.KEYSYM, GLFW.GLFW_KEY_A),
+                this.keyBinding("key.back", InputMappings.Type.KEYSYM, GLFW.GLFW_KEY_S),
+                this.keyBinding("key.right", InputMappings.Type.KEYSYM, GLFW.GLFW_KEY_D),
+                this.keyBinding("key.attack", InputMappings.Type.MOUSE, GLFW.GLFW_MOUSE_BUTTON_LEFT),
+                this.keyBinding("key.use", InputMappings.Type.MOUSE, GLFW.GLFW_MOUSE_BUTTON_RIGHT),
+                this.keyBinding("key.jump", InputMappings.Type.KEYSYM, GLFW.GLFW_KEY_SPACE),
+                this.keyBinding("key.sneak", InputMappings.Type.KEYSYM, GLFW.GLFW_KEY_LEFT_SHIFT)
+        };
+
+        final OverlayHud[] overlays = new OverlayHud[2];
+        this.inputSnapshot = new InputSnapshot();
+        this.colorManager = new ColorManager(() -> overlays[0], () -> false, () -> null);
+        Keystroke.install(this.colorManager, new KeyBindingRegistry(null, () -> this.keyBindings), this.inputSnapshot,
+                new LabelCache(), new TextMetrics(new FixedFont()));
+
+        final Keystroke barrier = new Keystroke.BarrierKeystroke();
+        overlays[0] = new OverlayHud("default", new HudBuilder()
+                .section(OverlayHud.Section.KEY)
+                    .row(Arrays.asList(barrier, this.keystroke(0, Keystroke.KeyType.KEY, true), barrier))
+                    .row(Arrays.asList(
+                        this.keystroke(1, Keystroke.KeyType.KEY, true),
+                        this.keystroke(2, Keystroke.KeyType.KEY, true),
+                        this.keystroke(3, Keystroke.KeyType.KEY, true)))
+                    .buildSection()
+                .section(OverlayHud.Section.MOUSE)
+                    .row(Arrays.asList(
+                        this.keystroke(4, Keystroke.KeyType.MOUSE_LEFT, true),
+                        this.keystroke(5, Keystroke.KeyType.MOUSE_RIGHT, true)))
+                    .buildSection()
+                .section(OverlayHud.Section.SPACEBAR)
+                    .row(Collections.singletonList(this.keystroke(6, Keystroke.KeyType.SPACEBAR, true)))
+                    .buildSection()
+                .build(), new HudPosition(), false);
+
+        // overlaps the default overlay, so the batch is flushed in between
+        final EnumMap<OverlayHud.Section, List<Keystroke.Row>> customRows = new HudBuilder()
+                .section(OverlayHud.Section.KEY)
+                    .row(Collections.singletonList(this.keystroke(7, Keystroke.KeyType.KEY, false)))
+                    .buildSection()
+                .build();
+        overlays[1] = new OverlayHud("custom", customRows, new HudPosition(40, 20, 75, 1), true);
+
+        this.overlays = overlays;
+        this.sink = new CountingSink();
+        this.batch = new HudBatch(this.sink);
+    }
+
+    @Test
+    public void steadyStateFrameDoesNotAllocate() {
+        Assume.assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        for (int frame = 0; frame < WARMUP_FRAMES; frame++) {
+            this.renderFrame(frame);
+        }
+
+        // reading the counter may allocate by itself, which is subtracted from the measurement
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            final long before = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - before);
+        }
+
+        final long before = allocatedBytes();
+        for (int frame = 0; frame < FRAMES; frame++) {
+            this.renderFrame(frame);
+        }
+        final long allocated = allocatedBytes() - before - overhead;
+
+        assertTrue("Nothing was rendered", this.sink.vertices > 0 && this.sink.texts > 0);
+        assertEquals("Bytes allocated per frame (" + allocated + " in " + FRAMES + " frames)", 0, allocated / FRAMES);
+    }
+
+    /**
+     * Renders a frame like {@link HudRenderer#renderScreenOverlays()} does with the batch.
+     */
+    private void renderFrame(int frame) {
+        // hold the keys down every other few frames & click at changing rates, so every branch is taken
+        this.pressed = (frame & 8) != 0;
+        this.inputSnapshot.capture(this.keyBindings, frame % 20, frame % 7);
+        this.colorManager.beginFrame();
+
+        this.batch.begin();
+        for (OverlayHud overlay : this.overlays) {
+            this.batch.addOverlay(overlay, overlay.getLayout());
+        }
+        this.batch.flush();
+    }
+
+    private KeyBinding keyBinding(String description, InputMappings.Type type, int code) {
+        return new KeyBinding(description, type, code, "key.categories.test") {
+            @Override
+            public boolean isKeyDown() {
+                return RenderAllocationTest.this.pressed;
+            }
+        };
+    }
+
+    private Keystroke keystroke(int index, Keystroke.KeyType type, boolean def) {
+        return Keystroke.newKeystroke(this.keyBindings[index], type, def);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures every character as 6 wide.
+     */
+    private static class FixedFont implements TextMetrics.Font {
+
+        @Override
+        public int getWidth(String text) {
+            return text.length() * 6;
+        }
+
+        @Override
+        public int getHeight() {
+            return 9;
+        }
+
+        @Override
+        public boolean isForceUnicode() {
+            return false;
+        }
+    }
+
+    /**
+     * Only counts what it receives, mixing the values into a sum so none of the work can be skipped.
+     */
+    private static class CountingSink implements HudBatch.Sink {
+        private int vertices, texts;
+        private double sum;
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void vertex(float x, float y, float red, float green, float blue, float alpha) {
+            this.vertices++;
+            this.sum += x + y + red + green + blue + alpha;
+        }
+
+        @Override
+        public void text(String text, float x, float y, int color, boolean shadow, Matrix4f matrix) {
+            this.texts++;
+            this.sum += text.length() + x + y + color;
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}